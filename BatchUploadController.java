@@ -0,0 +1,42 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.BatchUploadService;
+import com.example.demo.service.ReloadMode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/tables")
+public class BatchUploadController {
+
+    private final BatchUploadService batchUploadService;
+
+    public BatchUploadController(BatchUploadService batchUploadService) {
+        this.batchUploadService = batchUploadService;
+    }
+
+    /**
+     * Uploads several tables at once: one workbook with a sheet per table, or several files matched to
+     * {@code tables} in order (or to tables named after the files).
+     */
+    @PostMapping("/versions")
+    public ResponseEntity<Map<String, Object>> uploadBatch(
+            @RequestParam("groups") List<String> groups,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "tables", required = false) List<String> tables,
+            @RequestParam(value = "mode", required = false) ReloadMode mode) {
+
+        try {
+            return ResponseEntity.ok(batchUploadService.upload(groups, files, tables, mode));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
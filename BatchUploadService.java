@@ -0,0 +1,242 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * Uploads a set of related lookup tables in one request: the sheets of one workbook (each named after its table)
+ * or several files. All tables are authorized first, then validated in parallel on {@code upload.batch.parallelism}
+ * threads. In {@link ReloadMode#SHADOW_SWAP} on PostgreSQL each table is then loaded into its shadow copy
+ * concurrently, every one in its own transaction over its own connection, and a single transaction writes all
+ * versions and history and renames the copies into place, so the release commits or rolls back as a whole.
+ * Other modes and databases, and tables that cannot be shadow swapped, are reloaded one after another inside that
+ * transaction.
+ */
+@Service
+public class BatchUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchUploadService.class);
+
+    /**
+     * One table of a batch: {@code sheetName} of a workbook, or the first sheet (or a delimited file) when null.
+     */
+    public record BatchItem(String tableName, MultipartFile file, String sheetName) {
+    }
+
+    /**
+     * A validated table on its way to {@link ExcelUploadService#commitBatch}; {@code shadowTable} names the copy its
+     * rows were staged in, null when it is reloaded in place.
+     */
+    public record PreparedTable(UploadPlan plan, ColumnarRowBatch rows, String shadowTable) {
+    }
+
+    private final ExcelUploadService excelUploadService;
+    private final ExcelSheetReader excelSheetReader;
+    private final DelimitedTextReader delimitedTextReader;
+    private final DynamicTableService dynamicTableService;
+    private final UploadMetrics uploadMetrics;
+    private final ExecutorService executor;
+    private final Path spoolDirectory;
+    private final ReloadMode defaultReloadMode;
+
+    public BatchUploadService(ExcelUploadService excelUploadService,
+                              ExcelSheetReader excelSheetReader,
+                              DelimitedTextReader delimitedTextReader,
+                              DynamicTableService dynamicTableService,
+                              UploadMetrics uploadMetrics,
+                              @Value("${upload.batch.parallelism:4}") int parallelism,
+                              @Value("${upload.spool.dir:${java.io.tmpdir}}") String spoolDirectory,
+                              @Value("${upload.batch.reload-mode:SHADOW_SWAP}") ReloadMode defaultReloadMode) {
+        this.excelUploadService = excelUploadService;
+        this.excelSheetReader = excelSheetReader;
+        this.delimitedTextReader = delimitedTextReader;
+        this.dynamicTableService = dynamicTableService;
+        this.uploadMetrics = uploadMetrics;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.defaultReloadMode = defaultReloadMode;
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "batch-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Uploads {@code files}: to {@code tables} in the same order when given, otherwise one table per sheet of a
+     * single workbook, or per file named after the file.
+     */
+    public Map<String, Object> upload(List<String> groups, List<MultipartFile> files, List<String> tables,
+                                      ReloadMode mode) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No files uploaded");
+        }
+        if (tables != null && !tables.isEmpty()) {
+            if (tables.size() != files.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Got " + files.size() + " files for " + tables.size() + " tables");
+            }
+            List<BatchItem> items = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) items.add(new BatchItem(tables.get(i), files.get(i), null));
+            return upload(groups, items, mode);
+        }
+        if (files.size() == 1 && delimitedTextReader.delimiterOf(files.get(0)) == 0) {
+            return uploadWorkbook(groups, files.get(0), mode);
+        }
+        List<BatchItem> items = new ArrayList<>();
+        for (MultipartFile file : files) items.add(new BatchItem(baseName(file), file, null));
+        return upload(groups, items, mode);
+    }
+
+    public Map<String, Object> upload(List<String> groups, List<BatchItem> items, ReloadMode mode) {
+        ReloadMode reloadMode = mode == null ? defaultReloadMode : mode;
+        Set<String> seen = new HashSet<>();
+        for (BatchItem item : items) {
+            if (!seen.add(item.tableName())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Table " + item.tableName() + " appears more than once");
+            }
+        }
+        List<UploadPlan> plans = excelUploadService.authorizeAll(items.stream().map(BatchItem::tableName).toList(), groups);
+
+        String currentUser = excelUploadService.currentUser();
+        List<UploadMetrics.Recording> recordings = items.stream()
+                .map(item -> uploadMetrics.start(item.tableName(), item.file().getSize()))
+                .toList();
+        List<PreparedTable> staged = new CopyOnWriteArrayList<>();
+        boolean success = false;
+        List<ColumnarRowBatch> rows = List.of();
+        try {
+            rows = runAll(items, i -> excelUploadService.extract(plans.get(i), items.get(i).file(), items.get(i).sheetName(),
+                    currentUser, new UploadProgress(), recordings.get(i)));
+
+            List<ColumnarRowBatch> validated = rows;
+            List<PreparedTable> prepared = runAll(items, i -> {
+                UploadPlan plan = plans.get(i);
+                if (reloadMode != ReloadMode.SHADOW_SWAP || !dynamicTableService.supportsShadowSwap(plan)) {
+                    return new PreparedTable(plan, validated.get(i), null);
+                }
+                recordings.get(i).stage(UploadProgress.Stage.LOADING);
+                PreparedTable table = new PreparedTable(plan, validated.get(i),
+                        dynamicTableService.stageShadowTable(plan, validated.get(i), currentUser, new UploadProgress()));
+                staged.add(table);
+                return table;
+            });
+
+            recordings.forEach(recording -> recording.stage(UploadProgress.Stage.VERSIONING));
+            Map<String, Map<String, Object>> results = excelUploadService.commitBatch(prepared, reloadMode, currentUser);
+            success = true;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("message", "Batch processed successfully");
+            result.put("tables", results);
+            return result;
+        } finally {
+            if (!success) staged.forEach(this::dropShadowQuietly);
+            for (int i = 0; i < items.size(); i++) {
+                recordings.get(i).finish(success, i < rows.size() ? rows.get(i).size() : 0);
+            }
+            log.info("Batch upload of {} tables {}", items.size(), success ? "committed" : "failed");
+        }
+    }
+
+    /**
+     * One table per sheet. The workbook is spooled once so the parallel sheet readers share a single copy.
+     */
+    private Map<String, Object> uploadWorkbook(List<String> groups, MultipartFile file, ReloadMode mode) throws IOException {
+        if (file instanceof SpooledMultipartFile) {
+            return upload(groups, sheetItems(file), mode);
+        }
+        Files.createDirectories(spoolDirectory);
+        Path path = Files.createTempFile(spoolDirectory, "batch-upload-", ".xlsx");
+        try {
+            file.transferTo(path);
+            return upload(groups, sheetItems(new SpooledMultipartFile(path, file.getOriginalFilename(), file.getContentType())), mode);
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled batch {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private List<BatchItem> sheetItems(MultipartFile file) throws IOException {
+        return excelSheetReader.sheetNames(file).stream().map(sheet -> new BatchItem(sheet, file, sheet)).toList();
+    }
+
+    /**
+     * Runs {@code task} for every item on the pool and waits for all of them, so no table is still being worked on
+     * when a failure is reported. Failures of all tables are reported together, with the status of the first.
+     */
+    private <T> List<T> runAll(List<BatchItem> items, IntFunction<T> task) {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            futures.add(executor.submit(() -> task.apply(index)));
+        }
+
+        List<T> results = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        RuntimeException first = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Interrupted during batch upload", e);
+            } catch (ExecutionException e) {
+                RuntimeException failure = e.getCause() instanceof RuntimeException runtime ? runtime
+                        : new IllegalStateException(e.getCause());
+                if (first == null) first = failure;
+                String reason = failure instanceof ResponseStatusException status ? status.getReason() : failure.getMessage();
+                failures.add(items.get(i).tableName() + ": " + reason);
+            }
+        }
+        if (first == null) return results;
+        if (failures.size() == 1) throw first;
+        HttpStatusCode status = first instanceof ResponseStatusException statusException
+                ? statusException.getStatusCode() : HttpStatus.BAD_REQUEST;
+        throw new ResponseStatusException(status, String.join("; ", failures), first);
+    }
+
+    private void dropShadowQuietly(PreparedTable table) {
+        try {
+            dynamicTableService.dropShadowTable(table.plan(), table.shadowTable());
+        } catch (RuntimeException e) {
+            log.warn("Could not drop staged copy {}: {}", table.shadowTable(), e.getMessage());
+        }
+    }
+
+    private static String baseName(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        if (name == null || name.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Files without a name need a table in 'tables'");
+        }
+        name = Path.of(name).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Checks cells against a form column's {@code regex_pattern}. The pattern is analyzed once, when the plan is
+ * built ({@link RegexShape}): patterns with a small finite language ({@code ^(Y|N)$}, {@code ^([1-9]|[1-9][0-9]|100)$})
+ * become a set lookup, chains of character-class runs ({@code ^[A-Z]{3}[0-9]{3}$}, {@code ^[A-Za-z0-9 ]+$}) and
+ * plain integers/decimals are checked by hand-written loops, and everything else runs on the compiled
+ * {@link Pattern} under a per-cell time budget. The fast paths accept exactly the pattern's language and do not
+ * allocate. Patterns with nested quantifiers that can backtrack exponentially are logged and left to the
+ * budgeted {@link Pattern}, which turns a runaway match into a validation error on that cell.
+ */
+abstract class CellMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CellMatcher.class);
+
+    private static final int MAX_ENUMERATION = 4096;
+
+    abstract boolean matches(String value);
+
+    static CellMatcher compile(String columnName, String regex, Duration timeBudget) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid regex pattern for column " + columnName, e);
+        }
+        RegexMatcher fallback = new RegexMatcher(columnName, pattern, timeBudget);
+
+        RegexShape.Node shape = RegexShape.parse(regex);
+        if (shape == null) return fallback;
+        String risk = RegexShape.backtrackingRisk(shape);
+        if (risk != null) {
+            log.warn("Regex pattern for column {} can backtrack catastrophically ({}), matching it under the time budget: {}",
+                    columnName, risk, regex);
+            return fallback;
+        }
+
+        Set<String> values = RegexShape.expand(shape, MAX_ENUMERATION);
+        if (values != null) return new EnumerationMatcher(values);
+        CellMatcher matcher = ClassRunMatcher.of(shape, fallback);
+        if (matcher == null) matcher = NumberMatcher.of(shape);
+        return matcher != null ? matcher : fallback;
+    }
+
+    private static List<RegexShape.Node> items(RegexShape.Node node) {
+        return node instanceof RegexShape.Sequence sequence ? sequence.items() : List.of(node);
+    }
+
+    private static RegexShape.CharSet chars(String chars) {
+        RegexShape.CharSet.Builder builder = new RegexShape.CharSet.Builder();
+        for (char c : chars.toCharArray()) builder.add(c);
+        return builder.build(false);
+    }
+
+    /**
+     * A pattern with at most {@value #MAX_ENUMERATION} possible values.
+     */
+    private static final class EnumerationMatcher extends CellMatcher {
+        private final Set<String> values;
+
+        private EnumerationMatcher(Set<String> values) {
+            this.values = Set.copyOf(values);
+        }
+
+        @Override
+        boolean matches(String value) {
+            return values.contains(value);
+        }
+    }
+
+    /**
+     * A sequence of character classes, each repeated between min and max times. Only built when matching greedily
+     * cannot go wrong: a run of variable length must be followed by a required run of disjoint characters (or end
+     * the pattern), so where it stops is never a choice.
+     */
+    private static final class ClassRunMatcher extends CellMatcher {
+        private final RegexShape.CharSet[] sets;
+        private final int[] mins;
+        private final int[] maxs;
+        private final CellMatcher fallback;
+
+        private ClassRunMatcher(RegexShape.CharSet[] sets, int[] mins, int[] maxs, CellMatcher fallback) {
+            this.sets = sets;
+            this.mins = mins;
+            this.maxs = maxs;
+            this.fallback = fallback;
+        }
+
+        static ClassRunMatcher of(RegexShape.Node shape, CellMatcher fallback) {
+            List<RegexShape.Node> items = items(shape);
+            int n = items.size();
+            RegexShape.CharSet[] sets = new RegexShape.CharSet[n];
+            int[] mins = new int[n];
+            int[] maxs = new int[n];
+            for (int i = 0; i < n; i++) {
+                RegexShape.Node item = items.get(i);
+                if (item instanceof RegexShape.CharClass c) {
+                    sets[i] = c.set();
+                    mins[i] = 1;
+                    maxs[i] = 1;
+                } else if (item instanceof RegexShape.Repeat r && r.node() instanceof RegexShape.CharClass c) {
+                    sets[i] = c.set();
+                    mins[i] = r.min();
+                    maxs[i] = r.max();
+                } else {
+                    return null;
+                }
+            }
+            for (int i = 0; i < n - 1; i++) {
+                if (mins[i] != maxs[i] && (mins[i + 1] == 0 || sets[i].intersects(sets[i + 1]))) return null;
+            }
+            return new ClassRunMatcher(sets, mins, maxs, fallback);
+        }
+
+        @Override
+        boolean matches(String value) {
+            int length = value.length();
+            int pos = 0;
+            for (int i = 0; i < sets.length; i++) {
+                RegexShape.CharSet set = sets[i];
+                int end = maxs[i] == RegexShape.UNBOUNDED ? length : (int) Math.min(length, (long) pos + maxs[i]);
+                int start = pos;
+                while (pos < end) {
+                    char c = value.charAt(pos);
+                    // Pattern matches a surrogate pair as one code point; leave those rare values to it
+                    if (Character.isSurrogate(c)) return fallback.matches(value);
+                    if (!set.contains(c)) break;
+                    pos++;
+                }
+                if (pos - start < mins[i]) return false;
+            }
+            return pos == length;
+        }
+    }
+
+    /**
+     * An optionally signed integer, with or without leading zeros ({@code [0-9]{1,9}} or {@code (0|[1-9][0-9]*)}),
+     * followed by an optional or required fraction ({@code (\.[0-9]{1,4})?}).
+     */
+    private static final class NumberMatcher extends CellMatcher {
+        private static final RegexShape.CharSet ZERO = chars("0");
+        private static final RegexShape.CharSet NON_ZERO = chars("123456789");
+        private static final RegexShape.CharSet POINT = chars(".");
+
+        private final RegexShape.CharSet sign;
+        private final int integerMin;
+        private final int integerMax;
+        private final boolean noLeadingZeros;
+        private final boolean hasFraction;
+        private final boolean fractionRequired;
+        private final int fractionMin;
+        private final int fractionMax;
+
+        private NumberMatcher(RegexShape.CharSet sign, int integerMin, int integerMax, boolean noLeadingZeros,
+                              boolean hasFraction, boolean fractionRequired, int fractionMin, int fractionMax) {
+            this.sign = sign;
+            this.integerMin = integerMin;
+            this.integerMax = integerMax;
+            this.noLeadingZeros = noLeadingZeros;
+            this.hasFraction = hasFraction;
+            this.fractionRequired = fractionRequired;
+            this.fractionMin = fractionMin;
+            this.fractionMax = fractionMax;
+        }
+
+        static NumberMatcher of(RegexShape.Node shape) {
+            List<RegexShape.Node> items = items(shape);
+            int i = 0;
+            RegexShape.CharSet sign = null;
+            if (i < items.size() && items.get(i) instanceof RegexShape.Repeat r && r.min() == 0 && r.max() == 1
+                    && r.node() instanceof RegexShape.CharClass c
+                    && (c.set().sameAs(chars("-")) || c.set().sameAs(chars("+-")))) {
+                sign = c.set();
+                i++;
+            }
+
+            if (i >= items.size()) return null;
+            int integerMin, integerMax;
+            boolean noLeadingZeros;
+            int[] digits = digitRun(items.get(i));
+            if (digits != null && digits[0] >= 1) {
+                integerMin = digits[0];
+                integerMax = digits[1];
+                noLeadingZeros = false;
+            } else if (items.get(i) instanceof RegexShape.Alternation a && a.branches().size() == 2
+                    && isChar(a.branches().get(0), ZERO) && nonZeroLead(a.branches().get(1)) > 0) {
+                integerMin = 1;
+                integerMax = nonZeroLead(a.branches().get(1));
+                noLeadingZeros = true;
+            } else {
+                return null;
+            }
+            i++;
+
+            if (i == items.size()) {
+                return new NumberMatcher(sign, integerMin, integerMax, noLeadingZeros, false, false, 0, 0);
+            }
+            boolean required = true;
+            List<RegexShape.Node> fraction = items.subList(i, items.size());
+            if (fraction.size() == 1 && fraction.get(0) instanceof RegexShape.Repeat r && r.min() == 0 && r.max() == 1) {
+                required = false;
+                fraction = items(r.node());
+            }
+            if (fraction.size() != 2 || !isChar(fraction.get(0), POINT)) return null;
+            int[] fractionDigits = digitRun(fraction.get(1));
+            if (fractionDigits == null) return null;
+            return new NumberMatcher(sign, integerMin, integerMax, noLeadingZeros, true, required,
+                    fractionDigits[0], fractionDigits[1]);
+        }
+
+        /**
+         * {min, max} for {@code [0-9]} or a repeat of it, null otherwise.
+         */
+        private static int[] digitRun(RegexShape.Node node) {
+            if (isChar(node, RegexShape.CharSet.DIGITS)) return new int[]{1, 1};
+            if (node instanceof RegexShape.Repeat r && isChar(r.node(), RegexShape.CharSet.DIGITS)) {
+                return new int[]{r.min(), r.max()};
+            }
+            return null;
+        }
+
+        /**
+         * Maximum digit count for {@code [1-9]} optionally followed by digits, 0 if the node is not that.
+         */
+        private static int nonZeroLead(RegexShape.Node node) {
+            List<RegexShape.Node> items = items(node);
+            if (items.isEmpty() || !isChar(items.get(0), NON_ZERO)) return 0;
+            if (items.size() == 1) return 1;
+            int[] rest = digitRun(items.get(1));
+            if (items.size() != 2 || rest == null || rest[0] != 0) return 0;
+            return rest[1] == RegexShape.UNBOUNDED ? RegexShape.UNBOUNDED : rest[1] + 1;
+        }
+
+        private static boolean isChar(RegexShape.Node node, RegexShape.CharSet set) {
+            return node instanceof RegexShape.CharClass c && c.set().sameAs(set);
+        }
+
+        @Override
+        boolean matches(String value) {
+            int length = value.length();
+            int pos = 0;
+            if (sign != null && length > 0 && sign.contains(value.charAt(0))) pos++;
+            int start = pos;
+            while (pos < length && isDigit(value.charAt(pos))) pos++;
+            int digits = pos - start;
+            if (digits < integerMin || digits > integerMax) return false;
+            if (noLeadingZeros && digits > 1 && value.charAt(start) == '0') return false;
+            if (pos == length) return !fractionRequired;
+            if (!hasFraction || value.charAt(pos) != '.') return false;
+            start = ++pos;
+            while (pos < length && isDigit(value.charAt(pos))) pos++;
+            int fraction = pos - start;
+            return pos == length && fraction >= fractionMin && fraction <= fractionMax;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+
+    /**
+     * The compiled pattern, reading the cell through a view that aborts the match once the time budget is spent.
+     */
+    private static final class RegexMatcher extends CellMatcher {
+        private final String columnName;
+        private final Pattern pattern;
+        private final long budgetNanos;
+
+        private RegexMatcher(String columnName, Pattern pattern, Duration timeBudget) {
+            this.columnName = columnName;
+            this.pattern = pattern;
+            this.budgetNanos = timeBudget.toNanos();
+        }
+
+        @Override
+        boolean matches(String value) {
+            if (budgetNanos <= 0) return pattern.matcher(value).matches();
+            try {
+                return pattern.matcher(new BudgetedText(value, System.nanoTime() + budgetNanos)).matches();
+            } catch (BudgetExceeded e) {
+                String shown = value.length() > 100 ? value.substring(0, 100) + "..." : value;
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format(
+                        "Regex pattern for column %s took longer than %d ms on value '%s'",
+                        columnName, TimeUnit.NANOSECONDS.toMillis(budgetNanos), shown));
+            }
+        }
+    }
+
+    private static final class BudgetedText implements CharSequence {
+        private final String text;
+        private final long deadline;
+        private int reads;
+
+        private BudgetedText(String text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & 0x3FF) == 0 && System.nanoTime() > deadline) throw BudgetExceeded.INSTANCE;
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static final class BudgetExceeded extends RuntimeException {
+        private static final BudgetExceeded INSTANCE = new BudgetExceeded();
+
+        private BudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellMatcherTest {
+
+    private static final Duration BUDGET = Duration.ofSeconds(1);
+
+    /**
+     * Patterns taking each fast path (set lookup, character-class runs, numbers) and a few that fall back.
+     */
+    private static final List<String> PATTERNS = List.of(
+            "^(Y|N)$",
+            "^([1-9]|[1-9][0-9]|100)$",
+            "^[A-Z]{3}[0-9]{3}$",
+            "^[A-Za-z0-9 ]+$",
+            "^[a-z]*[0-9]+$",
+            "[A-C]{2,3}",
+            "^\\d{4}-\\d{2}-\\d{2}$",
+            "^-?[0-9]{1,9}$",
+            "^[+-]?(0|[1-9][0-9]*)(\\.[0-9]{1,4})?$",
+            "^[0-9]+\\.[0-9]{2}$",
+            "^(ab|cd)?x$",
+            "^[^,]{0,5}$",
+            "^\\w+@\\w+\\.com$");
+
+    private static final String ALPHABET = "ABCNYZabcdxz0123456789.-+,@ \u00e9";
+
+    @Test
+    void fastPathsAgreeWithPattern() {
+        Random random = new Random(42);
+        for (String regex : PATTERNS) {
+            CellMatcher matcher = CellMatcher.compile("code", regex, BUDGET);
+            Pattern pattern = Pattern.compile(regex);
+            for (int i = 0; i < 20000; i++) {
+                String value = randomValue(random);
+                assertEquals(pattern.matcher(value).matches(), matcher.matches(value), regex + " on '" + value + "'");
+            }
+        }
+    }
+
+    @Test
+    void surrogatePairsAreMatchedAsCodePoints() {
+        CellMatcher matcher = CellMatcher.compile("code", "^[^0-9]{2}$", BUDGET);
+
+        assertTrue(matcher.matches("a\ud83d\ude00"));
+        assertFalse(matcher.matches("\ud83d\ude00\ud83d\ude00\ud83d\ude00"));
+    }
+
+    @Test
+    void backtrackingPatternStillCompiles() {
+        CellMatcher matcher = CellMatcher.compile("code", "^(a+)+$", BUDGET);
+
+        assertTrue(matcher.matches("aaaa"));
+        assertFalse(matcher.matches("aab"));
+    }
+
+    @Test
+    @Timeout(10)
+    void runawayMatchFailsTheCellWithinTheBudget() {
+        CellMatcher matcher = CellMatcher.compile("code", "^(.*a){12}$", Duration.ofMillis(50));
+
+        assertTrue(matcher.matches("a".repeat(12)));
+        assertThrows(ResponseStatusException.class, () -> matcher.matches("a".repeat(40) + "b"));
+    }
+
+    @Test
+    void invalidPatternIsRejected() {
+        assertThrows(ResponseStatusException.class, () -> CellMatcher.compile("code", "[a-", BUDGET));
+    }
+
+    private static String randomValue(Random random) {
+        int length = random.nextInt(12);
+        StringBuilder value = new StringBuilder(length);
+        boolean digits = random.nextInt(3) == 0;
+        for (int i = 0; i < length; i++) {
+            if (digits && random.nextInt(8) != 0) value.append((char) ('0' + random.nextInt(10)));
+            else value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return value.toString();
+    }
+}
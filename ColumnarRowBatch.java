@@ -0,0 +1,426 @@
+package com.example.demo.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Column-oriented buffer for uploaded rows. Numeric and boolean columns are stored in primitive arrays
+ * (dates as epoch days, timestamps as epoch microseconds of the local date-time),
+ * string columns are dictionary-encoded (falling back to plain references once a column turns out to be
+ * mostly distinct), nulls are tracked in a bitmap per column, and values that are the same for every row
+ * (the audit columns) are held once as batch constants.
+ * <p>
+ * Rows are appended column by column followed by {@link #endRow()}; a row that is abandoned halfway is simply
+ * not counted. Not thread-safe: each validation worker fills its own batch and the merger appends them in order.
+ */
+public final class ColumnarRowBatch {
+
+    public enum ColumnType {
+        INT, LONG, DOUBLE, BOOLEAN, STRING, DATE, TIMESTAMP, DECIMAL
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int DICTIONARY_MIN_ROWS = 65536;
+
+    private final List<String> columnNames;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final Column[] columns;
+    private final Map<String, Object> constants = new LinkedHashMap<>();
+    private int size;
+
+    public ColumnarRowBatch(List<String> columnNames, List<ColumnType> columnTypes) {
+        this.columnNames = List.copyOf(columnNames);
+        this.columns = new Column[columnNames.size()];
+        for (int c = 0; c < columns.length; c++) {
+            ColumnType type = columnTypes.get(c);
+            columns[c] = switch (type) {
+                case INT, DATE -> new IntColumn(type);
+                case LONG, TIMESTAMP -> new LongColumn(type);
+                case DOUBLE -> new DoubleColumn();
+                case BOOLEAN -> new BooleanColumn();
+                case STRING -> new StringColumn();
+                case DECIMAL -> new DecimalColumn();
+            };
+            columnIndexes.putIfAbsent(columnNames.get(c).toLowerCase(), c);
+        }
+    }
+
+    /**
+     * An empty batch with the same columns.
+     */
+    public ColumnarRowBatch emptyCopy() {
+        return new ColumnarRowBatch(columnNames, Arrays.stream(columns).map(Column::type).toList());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int columnCount() {
+        return columns.length;
+    }
+
+    public String columnName(int column) {
+        return columnNames.get(column);
+    }
+
+    public ColumnType columnType(int column) {
+        return columns[column].type();
+    }
+
+    /**
+     * Case-insensitive column lookup, -1 if the batch has no such column.
+     */
+    public int columnIndex(String name) {
+        return name == null ? -1 : columnIndexes.getOrDefault(name.toLowerCase(), -1);
+    }
+
+    public void setConstant(String name, Object value) {
+        constants.put(name, value);
+    }
+
+    public Map<String, Object> getConstants() {
+        return Collections.unmodifiableMap(constants);
+    }
+
+    // ---- appending ----
+
+    public void appendNull(int column) {
+        columns[column].appendNull(size);
+    }
+
+    public void appendInt(int column, int value) {
+        ((IntColumn) columns[column]).append(size, value);
+    }
+
+    public void appendLong(int column, long value) {
+        ((LongColumn) columns[column]).append(size, value);
+    }
+
+    public void appendDouble(int column, double value) {
+        ((DoubleColumn) columns[column]).append(size, value);
+    }
+
+    public void appendBoolean(int column, boolean value) {
+        ((BooleanColumn) columns[column]).append(size, value);
+    }
+
+    public void appendString(int column, String value) {
+        ((StringColumn) columns[column]).append(size, value);
+    }
+
+    public void appendDate(int column, LocalDate value) {
+        ((IntColumn) columns[column]).append(size, Math.toIntExact(value.toEpochDay()));
+    }
+
+    public void appendTimestamp(int column, LocalDateTime value) {
+        ((LongColumn) columns[column]).append(size, toEpochMicros(value));
+    }
+
+    public void appendDecimal(int column, BigDecimal value) {
+        ((DecimalColumn) columns[column]).append(size, value);
+    }
+
+    public void endRow() {
+        size++;
+    }
+
+    /**
+     * Appends the first {@code count} complete rows of {@code other}, which must have the same columns.
+     */
+    public void appendRows(ColumnarRowBatch other, int count) {
+        for (int c = 0; c < columns.length; c++) {
+            columns[c].appendFrom(other.columns[c], size, count);
+        }
+        size += count;
+    }
+
+    // ---- reading ----
+
+    public boolean isNull(int row, int column) {
+        return columns[column].nulls.get(row);
+    }
+
+    public int getInt(int row, int column) {
+        return ((IntColumn) columns[column]).values[row];
+    }
+
+    public long getLong(int row, int column) {
+        return ((LongColumn) columns[column]).values[row];
+    }
+
+    public double getDouble(int row, int column) {
+        return ((DoubleColumn) columns[column]).values[row];
+    }
+
+    public boolean getBoolean(int row, int column) {
+        return ((BooleanColumn) columns[column]).values.get(row);
+    }
+
+    public String getString(int row, int column) {
+        return isNull(row, column) ? null : ((StringColumn) columns[column]).get(row);
+    }
+
+    public LocalDate getDate(int row, int column) {
+        return isNull(row, column) ? null : LocalDate.ofEpochDay(((IntColumn) columns[column]).values[row]);
+    }
+
+    public LocalDateTime getTimestamp(int row, int column) {
+        if (isNull(row, column)) return null;
+        long micros = ((LongColumn) columns[column]).values[row];
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    public BigDecimal getDecimal(int row, int column) {
+        return isNull(row, column) ? null : ((DecimalColumn) columns[column]).values[row];
+    }
+
+    /**
+     * Boxed value of a cell, for paths that are not per-row hot (error reports, merges, history deltas).
+     */
+    public Object get(int row, int column) {
+        if (isNull(row, column)) return null;
+        return switch (columns[column].type()) {
+            case INT -> getInt(row, column);
+            case LONG -> getLong(row, column);
+            case DOUBLE -> getDouble(row, column);
+            case BOOLEAN -> getBoolean(row, column);
+            case STRING -> getString(row, column);
+            case DATE -> getDate(row, column);
+            case TIMESTAMP -> getTimestamp(row, column);
+            case DECIMAL -> getDecimal(row, column);
+        };
+    }
+
+    /**
+     * The row as a map of column name to value, including the batch constants.
+     */
+    public Map<String, Object> rowAsMap(int row) {
+        Map<String, Object> map = new HashMap<>();
+        for (int c = 0; c < columns.length; c++) {
+            map.put(columnNames.get(c), get(row, c));
+        }
+        map.putAll(constants);
+        return map;
+    }
+
+    private static long toEpochMicros(LocalDateTime value) {
+        return Math.addExact(Math.multiplyExact(value.toEpochSecond(ZoneOffset.UTC), 1_000_000L), value.getNano() / 1000);
+    }
+
+    // ---- column storage ----
+
+    private abstract static class Column {
+        final BitSet nulls = new BitSet();
+
+        abstract ColumnType type();
+
+        abstract void ensureCapacity(int capacity);
+
+        void appendNull(int row) {
+            ensureCapacity(row + 1);
+            nulls.set(row);
+        }
+
+        void appendFrom(Column other, int offset, int count) {
+            ensureCapacity(offset + count);
+            for (int i = other.nulls.nextSetBit(0); i >= 0 && i < count; i = other.nulls.nextSetBit(i + 1)) {
+                nulls.set(offset + i);
+            }
+            copyValues(other, offset, count);
+        }
+
+        abstract void copyValues(Column other, int offset, int count);
+
+        static int grow(int current, int required) {
+            return Math.max(required, Math.max(INITIAL_CAPACITY, current + (current >> 1)));
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private final ColumnType type;
+        int[] values = new int[0];
+
+        IntColumn(ColumnType type) {
+            this.type = type;
+        }
+
+        ColumnType type() {
+            return type;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, grow(values.length, capacity));
+        }
+
+        void append(int row, int value) {
+            ensureCapacity(row + 1);
+            values[row] = value;
+        }
+
+        void copyValues(Column other, int offset, int count) {
+            System.arraycopy(((IntColumn) other).values, 0, values, offset, count);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private final ColumnType type;
+        long[] values = new long[0];
+
+        LongColumn(ColumnType type) {
+            this.type = type;
+        }
+
+        ColumnType type() {
+            return type;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, grow(values.length, capacity));
+        }
+
+        void append(int row, long value) {
+            ensureCapacity(row + 1);
+            values[row] = value;
+        }
+
+        void copyValues(Column other, int offset, int count) {
+            System.arraycopy(((LongColumn) other).values, 0, values, offset, count);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values = new double[0];
+
+        ColumnType type() {
+            return ColumnType.DOUBLE;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, grow(values.length, capacity));
+        }
+
+        void append(int row, double value) {
+            ensureCapacity(row + 1);
+            values[row] = value;
+        }
+
+        void copyValues(Column other, int offset, int count) {
+            System.arraycopy(((DoubleColumn) other).values, 0, values, offset, count);
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+        final BitSet values = new BitSet();
+
+        ColumnType type() {
+            return ColumnType.BOOLEAN;
+        }
+
+        void ensureCapacity(int capacity) {
+            // BitSet grows on demand
+        }
+
+        void append(int row, boolean value) {
+            values.set(row, value);
+        }
+
+        void copyValues(Column other, int offset, int count) {
+            BitSet source = ((BooleanColumn) other).values;
+            for (int i = source.nextSetBit(0); i >= 0 && i < count; i = source.nextSetBit(i + 1)) {
+                values.set(offset + i);
+            }
+        }
+    }
+
+    private static final class DecimalColumn extends Column {
+        BigDecimal[] values = new BigDecimal[0];
+
+        ColumnType type() {
+            return ColumnType.DECIMAL;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) values = Arrays.copyOf(values, grow(values.length, capacity));
+        }
+
+        void append(int row, BigDecimal value) {
+            ensureCapacity(row + 1);
+            values[row] = value;
+        }
+
+        void copyValues(Column other, int offset, int count) {
+            System.arraycopy(((DecimalColumn) other).values, 0, values, offset, count);
+        }
+    }
+
+    /**
+     * Dictionary-encoded while the column repeats values; once it has more than {@value #DICTIONARY_MIN_ROWS}
+     * distinct values covering over half of its rows, the dictionary costs more than it saves and the column
+     * switches to plain references.
+     */
+    private static final class StringColumn extends Column {
+        int[] codes = new int[0];
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> dictionaryIndex = new HashMap<>();
+        String[] plain;
+
+        ColumnType type() {
+            return ColumnType.STRING;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (plain != null) {
+                if (capacity > plain.length) plain = Arrays.copyOf(plain, grow(plain.length, capacity));
+            } else if (capacity > codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, capacity));
+            }
+        }
+
+        void append(int row, String value) {
+            ensureCapacity(row + 1);
+            if (plain != null) {
+                plain[row] = value;
+                return;
+            }
+            Integer code = dictionaryIndex.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                dictionaryIndex.put(value, code);
+                if (dictionary.size() > DICTIONARY_MIN_ROWS && dictionary.size() > (row + 1) / 2) {
+                    codes[row] = code;
+                    switchToPlain(row + 1);
+                    return;
+                }
+            }
+            codes[row] = code;
+        }
+
+        String get(int row) {
+            return plain != null ? plain[row] : dictionary.get(codes[row]);
+        }
+
+        void copyValues(Column other, int offset, int count) {
+            StringColumn source = (StringColumn) other;
+            for (int i = 0; i < count; i++) {
+                if (!source.nulls.get(i)) append(offset + i, source.get(i));
+            }
+        }
+
+        private void switchToPlain(int rows) {
+            String[] values = new String[Math.max(rows, codes.length)];
+            for (int i = 0; i < rows; i++) {
+                if (!nulls.get(i)) values[i] = dictionary.get(codes[i]);
+            }
+            plain = values;
+            codes = null;
+            dictionary = null;
+            dictionaryIndex = null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads UTF-8 CSV and TSV uploads (RFC 4180 quoting, LF or CRLF line endings, optional BOM) and hands them over
+ * one record at a time like {@link ExcelSheetReader}. The file is memory-mapped and scanned in place; bytes are
+ * only copied out for the fields of the current record. Blank lines are skipped but still count as rows.
+ * Unquoted values are trimmed as string cells are in workbooks; quoting a value keeps its spaces.
+ */
+@Service
+public class DelimitedTextReader {
+
+    private static final Logger log = LoggerFactory.getLogger(DelimitedTextReader.class);
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /**
+     * The field delimiter for a CSV/TSV upload, by file extension and then content type; 0 for anything else.
+     */
+    public char delimiterOf(MultipartFile file) {
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+        String type = file.getContentType() == null ? "" : file.getContentType().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return ',';
+        if (name.endsWith(".tsv") || name.endsWith(".tab")) return '\t';
+        if (name.endsWith(".xlsx")) return 0;
+        if (type.startsWith("text/csv")) return ',';
+        if (type.startsWith("text/tab-separated-values")) return '\t';
+        return 0;
+    }
+
+    public void read(MultipartFile file, char delimiter, ExcelSheetReader.RowHandler handler) throws IOException {
+        if (file instanceof SpooledMultipartFile spooled) {
+            read(spooled.getPath(), delimiter, handler);
+            return;
+        }
+
+        Path tempFile = Files.createTempFile("delimited-upload-", ".txt");
+        try {
+            file.transferTo(tempFile);
+            read(tempFile, delimiter, handler);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("Could not delete temp file {}: {}", tempFile, e.getMessage());
+            }
+        }
+    }
+
+    public void read(Path path, char delimiter, ExcelSheetReader.RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Delimited file too large to map: " + size + " bytes");
+            }
+            if (size == 0) return;
+            new Parser(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), (byte) delimiter, handler).parse();
+        }
+    }
+
+    private static final class Parser {
+        private final MappedByteBuffer buffer;
+        private final byte delimiter;
+        private final ExcelSheetReader.RowHandler handler;
+        private final int limit;
+        private byte[] scratch = new byte[256];
+        private int position;
+
+        private Parser(MappedByteBuffer buffer, byte delimiter, ExcelSheetReader.RowHandler handler) {
+            this.buffer = buffer;
+            this.delimiter = delimiter;
+            this.handler = handler;
+            this.limit = buffer.limit();
+        }
+
+        void parse() throws IOException {
+            if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+                position = 3;
+            }
+            List<String> cells = new ArrayList<>();
+            int rowIndex = 0;
+            while (position < limit) {
+                cells.clear();
+                boolean blank = readRecord(cells);
+                if (!blank) handler.handleRow(rowIndex, SheetRow.ofText(cells));
+                rowIndex++;
+            }
+        }
+
+        /**
+         * Reads one record starting at {@link #position} and leaves it after the line ending.
+         * Returns true for an empty line.
+         */
+        private boolean readRecord(List<String> cells) throws IOException {
+            int start = position;
+            while (true) {
+                cells.add(position < limit && buffer.get(position) == QUOTE ? readQuoted() : readPlain().trim());
+
+                if (position >= limit) return false;
+                byte b = buffer.get(position);
+                if (b == delimiter) {
+                    position++;
+                    if (position >= limit) {
+                        cells.add("");
+                        return false;
+                    }
+                    continue;
+                }
+                boolean blank = position == start;
+                skipLineEnding();
+                return blank;
+            }
+        }
+
+        private String readPlain() {
+            int start = position;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == delimiter || b == LF || b == CR) break;
+                position++;
+            }
+            return decode(start, position);
+        }
+
+        private String readQuoted() throws IOException {
+            int quoteAt = position++;
+            int length = 0;
+            while (true) {
+                if (position >= limit) {
+                    throw new IOException("Unterminated quoted field starting at byte " + quoteAt);
+                }
+                byte b = buffer.get(position++);
+                if (b == QUOTE) {
+                    if (position < limit && buffer.get(position) == QUOTE) {
+                        position++;
+                    } else {
+                        break;
+                    }
+                }
+                if (length == scratch.length) scratch = Arrays.copyOf(scratch, length * 2);
+                scratch[length++] = b;
+            }
+            // anything between the closing quote and the next delimiter is kept, as lenient parsers do
+            int trailing = position;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == delimiter || b == LF || b == CR) break;
+                position++;
+            }
+            String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            return trailing == position ? value : value + decode(trailing, position);
+        }
+
+        private String decode(int from, int to) {
+            int length = to - from;
+            if (length == 0) return "";
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            buffer.get(from, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private void skipLineEnding() {
+            if (position < limit && buffer.get(position) == CR) position++;
+            if (position < limit && buffer.get(position) == LF) position++;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimitedTextReaderTest {
+
+    @TempDir
+    Path directory;
+
+    private final DelimitedTextReader reader = new DelimitedTextReader();
+
+    @Test
+    void trimsUnquotedFieldsOnly() throws IOException {
+        List<List<String>> rows = read("  a  ,\"  b  \",c\n", ',');
+
+        assertEquals(List.of(List.of("a", "  b  ", "c")), rows);
+    }
+
+    @Test
+    void readsQuotedDelimitersQuotesAndLineBreaks() throws IOException {
+        List<List<String>> rows = read("\"x,y\",\"say \"\"hi\"\"\",\"two\nlines\"\r\nlast,,\n", ',');
+
+        assertEquals(List.of(List.of("x,y", "say \"hi\"", "two\nlines"), List.of("last", "", "")), rows);
+    }
+
+    @Test
+    void skipsBlankLinesButCountsThem() throws IOException {
+        List<Integer> indexes = new ArrayList<>();
+        reader.read(write("a\tb\n\nc\td\n"), '\t', (rowIndex, row) -> indexes.add(rowIndex));
+
+        assertEquals(List.of(0, 2), indexes);
+    }
+
+    @Test
+    void stripsByteOrderMark() throws IOException {
+        List<List<String>> rows = read("\uFEFFcode,label\n", ',');
+
+        assertEquals(List.of(List.of("code", "label")), rows);
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() {
+        assertThrows(IOException.class, () -> read("a,\"open\n", ','));
+    }
+
+    private List<List<String>> read(String content, char delimiter) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        reader.read(write(content), delimiter, (rowIndex, row) -> rows.add(List.copyOf(row)));
+        return rows;
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("upload.txt"), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+/**
+ * Open-addressing hash index over the key columns of a {@link ColumnarRowBatch}, used to find duplicate keys
+ * without building a key String and a map entry per row. A slot holds a 64-bit hash of the key, the batch row it
+ * came from and that row's sheet row number (16 bytes, at a load factor of at most one half). Hash hits are
+ * verified against the stored row's typed values, so colliding keys are never reported as duplicates.
+ * <p>
+ * Key values compare like the joined key strings did: a null cell, an empty string and a key column the form
+ * does not fill are all the same empty value. Not thread-safe; only the pipeline's merger adds rows.
+ */
+final class DuplicateKeyIndex {
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final long EMPTY_SLOT = 0L;
+    private static final long EMPTY_VALUE = 0x9E3779B97F4A7C15L;
+
+    private final ColumnarRowBatch rows;
+    private final int[] keyColumns;
+    private long[] hashes;
+    private int[] slotRows;
+    private int[] slotRowNumbers;
+    private int mask;
+    private int size;
+
+    DuplicateKeyIndex(ColumnarRowBatch rows, int[] keyColumns) {
+        this.rows = rows;
+        this.keyColumns = keyColumns.clone();
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Indexes {@code row} of the batch. Returns the sheet row number of an earlier row with the same key,
+     * or -1 if the key is new.
+     */
+    int add(int row, int rowNumber) {
+        long hash = hash(row);
+        int slot = (int) hash & mask;
+        while (hashes[slot] != EMPTY_SLOT) {
+            if (hashes[slot] == hash && sameKey(slotRows[slot], row)) return slotRowNumbers[slot];
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        slotRows[slot] = row;
+        slotRowNumbers[slot] = rowNumber;
+        if (++size * 2 > hashes.length) grow();
+        return -1;
+    }
+
+    private long hash(int row) {
+        long hash = 0;
+        for (int c : keyColumns) {
+            hash = (hash ^ valueHash(row, c)) * 0xBF58476D1CE4E5B9L;
+        }
+        hash = mix(hash);
+        return hash == EMPTY_SLOT ? 1 : hash;
+    }
+
+    private long valueHash(int row, int column) {
+        if (isEmpty(row, column)) return EMPTY_VALUE;
+        return switch (rows.columnType(column)) {
+            case INT, DATE -> mix(rows.getInt(row, column));
+            case LONG, TIMESTAMP -> mix(rows.getLong(row, column));
+            case DOUBLE -> mix(Double.doubleToLongBits(rows.getDouble(row, column)));
+            case BOOLEAN -> rows.getBoolean(row, column) ? 1 : 2;
+            case STRING -> {
+                String value = rows.getString(row, column);
+                long h = 0xCBF29CE484222325L;
+                for (int i = 0; i < value.length(); i++) {
+                    h = (h ^ value.charAt(i)) * 0x100000001B3L;
+                }
+                yield mix(h);
+            }
+            case DECIMAL -> mix(rows.getDecimal(row, column).stripTrailingZeros().hashCode());
+        };
+    }
+
+    private boolean sameKey(int a, int b) {
+        for (int c : keyColumns) {
+            boolean emptyA = isEmpty(a, c);
+            if (emptyA != isEmpty(b, c)) return false;
+            if (emptyA) continue;
+            boolean equal = switch (rows.columnType(c)) {
+                case INT, DATE -> rows.getInt(a, c) == rows.getInt(b, c);
+                case LONG, TIMESTAMP -> rows.getLong(a, c) == rows.getLong(b, c);
+                case DOUBLE -> Double.doubleToLongBits(rows.getDouble(a, c)) == Double.doubleToLongBits(rows.getDouble(b, c));
+                case BOOLEAN -> rows.getBoolean(a, c) == rows.getBoolean(b, c);
+                case STRING -> rows.getString(a, c).equals(rows.getString(b, c));
+                case DECIMAL -> rows.getDecimal(a, c).compareTo(rows.getDecimal(b, c)) == 0;
+            };
+            if (!equal) return false;
+        }
+        return true;
+    }
+
+    private boolean isEmpty(int row, int column) {
+        if (column < 0 || rows.isNull(row, column)) return true;
+        return rows.columnType(column) == ColumnarRowBatch.ColumnType.STRING && rows.getString(row, column).isEmpty();
+    }
+
+    private void grow() {
+        long[] oldHashes = hashes;
+        int[] oldRows = slotRows;
+        int[] oldRowNumbers = slotRowNumbers;
+        allocate(oldHashes.length * 2);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] == EMPTY_SLOT) continue;
+            int slot = (int) oldHashes[i] & mask;
+            while (hashes[slot] != EMPTY_SLOT) slot = (slot + 1) & mask;
+            hashes[slot] = oldHashes[i];
+            slotRows[slot] = oldRows[i];
+            slotRowNumbers[slot] = oldRowNumbers[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        slotRows = new int[capacity];
+        slotRowNumbers = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Murmur3 64-bit finalizer.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateKeyIndexTest {
+
+    @Test
+    void reportsRowNumberOfFirstOccurrence() {
+        ColumnarRowBatch rows = strings("a", "b", "a", "a");
+        DuplicateKeyIndex index = new DuplicateKeyIndex(rows, new int[]{0});
+
+        assertEquals(-1, index.add(0, 10));
+        assertEquals(-1, index.add(1, 11));
+        assertEquals(10, index.add(2, 12));
+        assertEquals(10, index.add(3, 13));
+    }
+
+    @Test
+    void compositeKeysMatchOnEveryColumn() {
+        ColumnarRowBatch rows = new ColumnarRowBatch(List.of("code", "year"),
+                List.of(ColumnarRowBatch.ColumnType.STRING, ColumnarRowBatch.ColumnType.INT));
+        addRow(rows, "a", 2023);
+        addRow(rows, "a", 2024);
+        addRow(rows, "a", 2023);
+        DuplicateKeyIndex index = new DuplicateKeyIndex(rows, new int[]{0, 1});
+
+        assertEquals(-1, index.add(0, 1));
+        assertEquals(-1, index.add(1, 2));
+        assertEquals(1, index.add(2, 3));
+    }
+
+    @Test
+    void nullEmptyAndUnfilledColumnsAreTheSameEmptyValue() {
+        ColumnarRowBatch rows = new ColumnarRowBatch(List.of("code"), List.of(ColumnarRowBatch.ColumnType.STRING));
+        rows.appendNull(0);
+        rows.endRow();
+        rows.appendString(0, "");
+        rows.endRow();
+        DuplicateKeyIndex index = new DuplicateKeyIndex(rows, new int[]{0, -1});
+
+        assertEquals(-1, index.add(0, 1));
+        assertEquals(1, index.add(1, 2));
+    }
+
+    @Test
+    void decimalsCompareByValue() {
+        ColumnarRowBatch rows = new ColumnarRowBatch(List.of("rate"), List.of(ColumnarRowBatch.ColumnType.DECIMAL));
+        rows.appendDecimal(0, new BigDecimal("1.50"));
+        rows.endRow();
+        rows.appendDecimal(0, new BigDecimal("1.5"));
+        rows.endRow();
+        DuplicateKeyIndex index = new DuplicateKeyIndex(rows, new int[]{0});
+
+        assertEquals(-1, index.add(0, 1));
+        assertEquals(1, index.add(1, 2));
+    }
+
+    @Test
+    void findsDuplicatesAfterGrowing() {
+        int distinct = 5000;
+        ColumnarRowBatch rows = new ColumnarRowBatch(List.of("id"), List.of(ColumnarRowBatch.ColumnType.LONG));
+        for (int i = 0; i < distinct * 2; i++) {
+            rows.appendLong(0, i % distinct);
+            rows.endRow();
+        }
+        DuplicateKeyIndex index = new DuplicateKeyIndex(rows, new int[]{0});
+
+        for (int i = 0; i < distinct; i++) assertEquals(-1, index.add(i, i));
+        for (int i = distinct; i < distinct * 2; i++) assertEquals(i - distinct, index.add(i, i));
+    }
+
+    private static ColumnarRowBatch strings(String... values) {
+        ColumnarRowBatch rows = new ColumnarRowBatch(List.of("code"), List.of(ColumnarRowBatch.ColumnType.STRING));
+        for (String value : values) {
+            rows.appendString(0, value);
+            rows.endRow();
+        }
+        return rows;
+    }
+
+    private static void addRow(ColumnarRowBatch rows, String code, int year) {
+        rows.appendString(0, code);
+        rows.appendInt(1, year);
+        rows.endRow();
+    }
+}
@@ -1,15 +1,36 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.BulkUploadFormColumn;
+import com.example.demo.dto.MergeResult;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,30 +38,569 @@ public class DynamicTableService {
 
     private static final Logger log = LoggerFactory.getLogger(DynamicTableService.class);
 
+    private static final Set<String> MULTI_ROW_INSERT_DATABASES = Set.of("postgresql", "mysql", "mariadb", "h2");
+    private static final Set<String> TABLE_PRIVILEGES = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "TRUNCATE", "REFERENCES", "TRIGGER");
+    private static final Pattern INDEX_DEFINITION = Pattern.compile("^(CREATE (?:UNIQUE )?INDEX) \\S+ ON (?:ONLY )?\\S+ (USING .*)$");
+    private static final String SHADOW_SUFFIX = "__shadow";
+    private static final String RETIRED_SUFFIX = "__retired";
+    private static final Pattern SHADOW_NAME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9_]*__shadow_[0-9a-f]{8}$");
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
     private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private final int rowsPerStatement;
+    private final int maxParametersPerStatement;
+    private final boolean multiRowInsertEnabled;
+    private final UploadMetrics uploadMetrics;
+    private final ExecutorService chunkBuilders;
+    private volatile String databaseProduct;
 
-    public DynamicTableService(JdbcTemplate jdbcTemplate) {
+    public DynamicTableService(JdbcTemplate jdbcTemplate,
+                               @Value("${upload.load.chunk-size:5000}") int chunkSize,
+                               @Value("${upload.load.rows-per-statement:500}") int rowsPerStatement,
+                               @Value("${upload.load.max-parameters-per-statement:30000}") int maxParametersPerStatement,
+                               @Value("${upload.load.multi-row-insert:true}") boolean multiRowInsertEnabled,
+                               @Value("${upload.load.builder-threads:4}") int builderThreads,
+                               UploadMetrics uploadMetrics) {
         this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.rowsPerStatement = rowsPerStatement;
+        this.maxParametersPerStatement = maxParametersPerStatement;
+        this.multiRowInsertEnabled = multiRowInsertEnabled;
+        this.uploadMetrics = uploadMetrics;
+        // bounded: a load whose builder has to queue simply waits for it, its consumer is the caller's thread
+        this.chunkBuilders = Executors.newFixedThreadPool(builderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "table-load-chunk-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunkBuilders.shutdownNow();
     }
 
     @Transactional
     public void truncateAndReloadTable(String tableName, List<Map<String, Object>> data,
                                        List<BulkUploadFormColumn> columns, String createdBy) {
 
+        List<String> allColumns = resolveInsertColumns(tableName, columns);
+        Iterator<Map<String, Object>> rows = data.iterator();
+        reload(tableName, buildSafeInsertSql(tableName, allColumns),
+                (target, sql) -> loadRows(target, allColumns, sql, rows, createdBy, new UploadProgress()));
+    }
+
+    @Transactional
+    public void truncateAndReloadTable(UploadPlan plan, List<Map<String, Object>> data, String createdBy) {
+        truncateAndReloadTable(plan, data.iterator(), createdBy);
+    }
+
+    /**
+     * Streaming variant: rows are pulled from the iterator on a helper thread and flushed in chunks of
+     * {@code upload.load.chunk-size}, so only a few chunks are ever materialized regardless of row count.
+     */
+    @Transactional
+    public int truncateAndReloadTable(UploadPlan plan, Iterator<Map<String, Object>> rows, String createdBy) {
+        return reloadTable(plan, rows, createdBy, ReloadMode.TRUNCATE);
+    }
+
+    /**
+     * Reloads the table in the given mode. {@link ReloadMode#SHADOW_SWAP} falls back to TRUNCATE on
+     * databases without a supported swap strategy.
+     */
+    @Transactional
+    public int reloadTable(UploadPlan plan, Iterator<Map<String, Object>> rows, String createdBy, ReloadMode mode) {
+        return reloadTable(plan, rows, createdBy, mode, new UploadProgress());
+    }
+
+    @Transactional
+    public int reloadTable(UploadPlan plan, Iterator<Map<String, Object>> rows, String createdBy, ReloadMode mode,
+                           UploadProgress progress) {
+        List<String> allColumns = plan.getInsertColumns();
+        return reloadTable(plan, mode, (target, sql) -> loadRows(target, allColumns, sql, rows, createdBy, progress));
+    }
+
+    /**
+     * Columnar variant: values are bound straight from the batch's primitive columns, no per-row objects are built.
+     * The batch is already in memory as a whole, so chunking here bounds the JDBC statements, not the upload.
+     */
+    @Transactional
+    public int reloadTable(UploadPlan plan, ColumnarRowBatch rows, String createdBy, ReloadMode mode,
+                           UploadProgress progress) {
+        List<String> allColumns = plan.getInsertColumns();
+        return reloadTable(plan, mode, (target, sql) -> loadBatch(target, allColumns, sql, rows, null, createdBy, progress));
+    }
+
+    private int reloadTable(UploadPlan plan, ReloadMode mode, TableLoader loader) {
+        if (mode == ReloadMode.MERGE) {
+            throw new IllegalArgumentException("MERGE uploads are applied with mergeTable");
+        }
+        if (mode == ReloadMode.SHADOW_SWAP) {
+            String obstacle = shadowSwapObstacle(plan.getTableName());
+            if (obstacle == null) {
+                return shadowSwapReload(plan, loader);
+            }
+            log.warn("Reloading {} with TRUNCATE, shadow swap is not possible: {}", plan.getTableName(), obstacle);
+        }
+        return reload(plan.getTableName(), plan.getInsertSql(), loader);
+    }
+
+    /**
+     * Applies only the difference between {@code data} and the live table, matched on the plan's key columns:
+     * rows missing from the upload are deleted, changed rows updated (form columns only, audit columns keep
+     * their original values) and new rows inserted. The live table is read once through a cursor.
+     */
+    @Transactional
+    public MergeResult mergeTable(UploadPlan plan, ColumnarRowBatch data, String createdBy) {
+        return mergeTable(plan, data, createdBy, new UploadProgress());
+    }
+
+    @Transactional
+    public MergeResult mergeTable(UploadPlan plan, ColumnarRowBatch data, String createdBy, UploadProgress progress) {
+        String tableName = plan.getTableName();
+        List<String> keyColumns = plan.getKeyColumns();
+        List<String> valueColumns = plan.getColumns().stream()
+                .map(UploadPlan.PlanColumn::getColumnName)
+                .filter(col -> !keyColumns.contains(col))
+                .toList();
+        if (!keyColumns.stream().allMatch(this::isValidColumnName)) {
+            throw new IllegalArgumentException("Invalid key columns for " + tableName + ": " + keyColumns);
+        }
+        int[] keyIndexes = keyColumns.stream().mapToInt(data::columnIndex).toArray();
+        int[] valueIndexes = valueColumns.stream().mapToInt(data::columnIndex).toArray();
+        MergePlan merge = new MergePlan(data, keyIndexes, valueIndexes);
+
+        List<String> selectColumns = new ArrayList<>(keyColumns);
+        selectColumns.addAll(valueColumns);
+        String selectSql = String.format("SELECT %s FROM %s", String.join(", ", selectColumns), tableName);
+        int selectFetchSize = streamingFetchSize(chunkSize);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(selectSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(selectFetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Object[] keyValues = new Object[keyColumns.size()];
+            for (int i = 0; i < keyValues.length; i++) keyValues[i] = rs.getObject(i + 1);
+            Object[] liveValues = new Object[valueColumns.size()];
+            for (int i = 0; i < liveValues.length; i++) liveValues[i] = rs.getObject(keyValues.length + i + 1);
+            merge.addLiveRow(keyValues, liveValues);
+        });
+
+        String keyPredicate = keyColumns.stream().map(col -> col + " = ?").collect(Collectors.joining(" AND "));
+        for (List<Object[]> chunk : chunks(merge.deletes())) {
+            jdbcTemplate.batchUpdate(String.format("DELETE FROM %s WHERE %s", tableName, keyPredicate), chunk);
+        }
+
+        if (!valueColumns.isEmpty()) {
+            String updateSql = String.format("UPDATE %s SET %s WHERE %s", tableName,
+                    valueColumns.stream().map(col -> col + " = ?").collect(Collectors.joining(", ")), keyPredicate);
+            List<Object[]> updateArgs = merge.updates().stream().map(row -> {
+                List<Object> args = new ArrayList<>(Arrays.asList(values(data, row, valueIndexes)));
+                args.addAll(Arrays.asList(values(data, row, keyIndexes)));
+                return args.toArray();
+            }).toList();
+            for (List<Object[]> chunk : chunks(updateArgs)) {
+                jdbcTemplate.batchUpdate(updateSql, chunk);
+            }
+        }
+
+        int inserted = loadBatch(tableName, plan.getInsertColumns(), plan.getInsertSql(), data,
+                merge.inserts(), createdBy, progress);
+
+        int updated = merge.updates().size();
+        log.info("Merged {} into {}: {} inserted, {} updated, {} deleted, {} unchanged",
+                data.size(), tableName, inserted, updated, merge.deleted(), merge.unchanged());
+        return new MergeResult(inserted, updated, merge.deleted(), merge.unchanged());
+    }
+
+    List<String> resolveInsertColumns(String tableName, List<BulkUploadFormColumn> columns) {
         validateTableAndColumns(tableName, columns);
-        List<String> allColumns = resolveAllColumns(tableName, columns);
-        String insertSql = buildSafeInsertSql(tableName, allColumns);
+        return resolveAllColumns(tableName, columns);
+    }
+
+    /**
+     * Empties and refills the live table inside the caller's transaction. Only PostgreSQL runs TRUNCATE
+     * transactionally; MySQL, Oracle and H2 commit it implicitly, which would commit the upload's version and
+     * history rows, and in a batch the tables reloaded before this one, halfway through. Elsewhere the table is
+     * emptied with DELETE instead.
+     */
+    private int reload(String tableName, String insertSql, TableLoader loader) {
+        if ("postgresql".equals(databaseProduct())) {
+            jdbcTemplate.execute("TRUNCATE TABLE " + tableName);
+        } else {
+            jdbcTemplate.update("DELETE FROM " + tableName);
+        }
+
+        int inserted = loader.load(tableName, insertSql);
+
+        log.info("Inserted {} rows into {}", inserted, tableName);
+        return inserted;
+    }
+
+    /**
+     * Loads a shadow copy of the table without touching the live one, then renames it into place. Readers of
+     * the live table are only blocked for the rename itself. PostgreSQL only: the copy, the renames and the drop
+     * are all transactional, so they commit or roll back with the upload's version and history rows. Views or
+     * foreign keys that reference the live table would follow it to the retired copy, so the final DROP fails and
+     * the upload is rolled back rather than silently breaking them.
+     */
+    private int shadowSwapReload(UploadPlan plan, TableLoader loader) {
+        ShadowCopy copy = stageShadow(plan, loader);
+        swapShadow(plan.getTableName(), copy.table());
+        log.info("Inserted {} rows into {} via shadow swap", copy.inserted(), plan.getTableName());
+        return copy.inserted();
+    }
+
+    /**
+     * Whether the plan's table can be reloaded through a shadow copy that commits or rolls back with the caller's
+     * transaction; {@link ReloadMode#SHADOW_SWAP} falls back to TRUNCATE where it cannot.
+     */
+    public boolean supportsShadowSwap(UploadPlan plan) {
+        return shadowSwapObstacle(plan.getTableName()) == null;
+    }
+
+    /**
+     * Loads {@code rows} into a fresh shadow copy of the plan's table, with the live table's constraints, indexes
+     * and grants, in a transaction of its own, and returns the copy's name; the live table is not touched until
+     * {@link #swapShadowTable}. Batch uploads stage several tables at once this way, each over its own connection.
+     * Only for tables that {@link #supportsShadowSwap}.
+     */
+    @Transactional
+    public String stageShadowTable(UploadPlan plan, ColumnarRowBatch rows, String createdBy, UploadProgress progress) {
+        List<String> allColumns = plan.getInsertColumns();
+        return stageShadow(plan, (target, sql) -> loadBatch(target, allColumns, sql, rows, null, createdBy, progress)).table();
+    }
+
+    /**
+     * Renames a copy staged by {@link #stageShadowTable} over the live table, as part of the caller's transaction.
+     */
+    @Transactional
+    public void swapShadowTable(UploadPlan plan, String shadowTable) {
+        swapShadow(plan.getTableName(), checkShadowName(plan, shadowTable));
+    }
+
+    /**
+     * Drops a staged copy that will not be swapped in.
+     */
+    public void dropShadowTable(UploadPlan plan, String shadowTable) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + checkShadowName(plan, shadowTable));
+    }
+
+    /**
+     * Why the table cannot be reloaded by shadow swap, null if it can. Outside PostgreSQL the DDL involved commits
+     * implicitly. User triggers and row-level security policies are not carried over to the copy, and a foreign
+     * key the table has on itself would keep pointing at the retired copy.
+     */
+    private String shadowSwapObstacle(String tableName) {
+        String product = databaseProduct();
+        if (!"postgresql".equals(product)) return "not supported on " + product;
+
+        String relation = tableName.toLowerCase();
+        Map<String, Object> features = jdbcTemplate.queryForMap(
+                "SELECT (SELECT count(*) FROM pg_trigger t WHERE t.tgrelid = c.oid AND NOT t.tgisinternal) AS triggers, "
+                        + "c.relrowsecurity OR c.relforcerowsecurity OR EXISTS (SELECT 1 FROM pg_policy p WHERE p.polrelid = c.oid) AS row_security, "
+                        + "EXISTS (SELECT 1 FROM pg_constraint f WHERE f.conrelid = c.oid AND f.confrelid = c.oid AND f.contype = 'f') AS self_reference "
+                        + "FROM pg_class c WHERE c.oid = to_regclass(?)",
+                relation);
+        if (((Number) features.get("triggers")).longValue() > 0) return tableName + " has triggers";
+        if (Boolean.TRUE.equals(features.get("row_security"))) return tableName + " uses row-level security";
+        if (Boolean.TRUE.equals(features.get("self_reference"))) return tableName + " has a foreign key to itself";
+        return null;
+    }
+
+    /**
+     * Creates and loads a uniquely named copy, so concurrent uploads to the same table never drop each other's.
+     */
+    private ShadowCopy stageShadow(UploadPlan plan, TableLoader loader) {
+        String tableName = plan.getTableName();
+        String shadowTable = uniqueName(tableName, SHADOW_SUFFIX);
+
+        jdbcTemplate.execute("CREATE TABLE " + shadowTable + " (LIKE " + tableName + " INCLUDING ALL EXCLUDING INDEXES)");
+
+        int inserted = loader.load(shadowTable, buildSafeInsertSql(shadowTable, plan.getInsertColumns()));
+
+        copyPostgresIndexes(tableName, shadowTable);
+        copyPostgresGrants(tableName, shadowTable);
+        jdbcTemplate.execute("ANALYZE " + shadowTable);
+        return new ShadowCopy(shadowTable, inserted);
+    }
+
+    private record ShadowCopy(String table, int inserted) {
+    }
+
+    private void swapShadow(String tableName, String shadowTable) {
+        String retiredTable = uniqueName(tableName, RETIRED_SUFFIX);
+        List<Map<String, Object>> ownedSequences = findPostgresOwnedSequences(tableName);
+        jdbcTemplate.execute("ALTER TABLE " + tableName + " RENAME TO " + retiredTable);
+        jdbcTemplate.execute("ALTER TABLE " + shadowTable + " RENAME TO " + tableName);
+        for (Map<String, Object> owned : ownedSequences) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + owned.get("sequence_name") + " OWNED BY "
+                    + tableName + "." + owned.get("column_name"));
+        }
+        jdbcTemplate.execute("DROP TABLE " + retiredTable);
+    }
+
+    private static String uniqueName(String tableName, String suffix) {
+        String name = tableName + suffix + "_" + UUID.randomUUID().toString().substring(0, 8);
+        if (name.length() > MAX_IDENTIFIER_LENGTH) {
+            throw new IllegalArgumentException("Table name too long for shadow swap: " + tableName);
+        }
+        return name;
+    }
+
+    private static String checkShadowName(UploadPlan plan, String shadowTable) {
+        if (shadowTable == null || !SHADOW_NAME.matcher(shadowTable).matches()
+                || !shadowTable.startsWith(plan.getTableName() + SHADOW_SUFFIX + "_")) {
+            throw new IllegalArgumentException("Not a shadow copy of " + plan.getTableName() + ": " + shadowTable);
+        }
+        return shadowTable;
+    }
+
+    /**
+     * Recreates the live table's primary key, unique/exclusion constraints, outbound foreign keys and plain indexes
+     * on the loaded shadow table. Names are left to PostgreSQL so they never clash with the live table's.
+     */
+    private void copyPostgresIndexes(String tableName, String shadowTable) {
+        String relation = tableName.toLowerCase();
+        List<String> constraints = jdbcTemplate.queryForList(
+                "SELECT pg_get_constraintdef(c.oid) FROM pg_constraint c WHERE c.conrelid = to_regclass(?) "
+                        + "AND c.contype IN ('p', 'u', 'x', 'f') ORDER BY c.contype = 'f', c.oid",
+                String.class, relation);
+        for (String definition : constraints) {
+            jdbcTemplate.execute("ALTER TABLE " + shadowTable + " ADD " + definition);
+        }
+
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT pg_get_indexdef(i.indexrelid) FROM pg_index i WHERE i.indrelid = to_regclass(?) "
+                        + "AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = i.indexrelid)",
+                String.class, relation);
+        for (String definition : indexes) {
+            Matcher matcher = INDEX_DEFINITION.matcher(definition);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Unrecognized index definition on " + tableName + ": " + definition);
+            }
+            jdbcTemplate.execute(matcher.group(1) + " ON " + shadowTable + " " + matcher.group(2));
+        }
+    }
 
-        jdbcTemplate.execute("TRUNCATE TABLE " + tableName);
+    private void copyPostgresGrants(String tableName, String shadowTable) {
+        List<Map<String, Object>> grants = jdbcTemplate.queryForList(
+                "SELECT grantee, privilege_type FROM information_schema.role_table_grants "
+                        + "WHERE table_schema = current_schema() AND table_name = ? AND grantee <> current_user",
+                tableName.toLowerCase());
+        for (Map<String, Object> grant : grants) {
+            String privilege = String.valueOf(grant.get("privilege_type"));
+            String grantee = String.valueOf(grant.get("grantee"));
+            if (!TABLE_PRIVILEGES.contains(privilege)) continue;
+            String role = "PUBLIC".equals(grantee) ? grantee : "\"" + grantee.replace("\"", "\"\"") + "\"";
+            jdbcTemplate.execute("GRANT " + privilege + " ON " + shadowTable + " TO " + role);
+        }
+    }
 
+    /**
+     * Serial columns copied with LIKE keep pointing at the live table's sequences; ownership has to move to
+     * the swapped-in table or dropping the retired one would drop (or refuse to drop) them.
+     */
+    private List<Map<String, Object>> findPostgresOwnedSequences(String tableName) {
+        return jdbcTemplate.queryForList(
+                "SELECT a.attname AS column_name, pg_get_serial_sequence(a.attrelid::regclass::text, a.attname) AS sequence_name "
+                        + "FROM pg_attribute a WHERE a.attrelid = to_regclass(?) AND a.attnum > 0 AND NOT a.attisdropped "
+                        + "AND a.attidentity = '' AND pg_get_serial_sequence(a.attrelid::regclass::text, a.attname) IS NOT NULL",
+                tableName.toLowerCase());
+    }
+
+    /**
+     * Builds the next chunk on a helper thread while the current one executes on the caller's
+     * (transaction-bound) connection. The queue holds a single chunk, so at most three are alive at once.
+     */
+    private int loadRows(String tableName, List<String> allColumns, String insertSql,
+                         Iterator<Map<String, Object>> rows, String createdBy, UploadProgress progress) {
         LocalDateTime now = LocalDateTime.now();
-        List<Object[]> batchArgs = data.stream()
-                .map(row -> mapRowValues(row, allColumns, createdBy, now))
-                .toList();
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(1);
+
+        Future<?> builder = chunkBuilders.submit(() -> {
+            Chunk last;
+            try {
+                List<Object[]> chunk = new ArrayList<>(chunkSize);
+                while (rows.hasNext()) {
+                    chunk.add(mapRowValues(rows.next(), allColumns, createdBy, now));
+                    if (chunk.size() == chunkSize) {
+                        chunks.put(new Chunk(chunk, false, null));
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                last = new Chunk(chunk, true, null);
+            } catch (RuntimeException | Error e) {
+                // handed to the loading thread, which rethrows it as is
+                last = new Chunk(List.of(), true, e);
+            }
+            chunks.put(last);
+            return null;
+        });
+
+        String multiRowSql = null;
+        int groupSize = Math.min(rowsPerStatement, maxParametersPerStatement / Math.max(1, allColumns.size()));
+        if (groupSize > 1 && supportsMultiRowInsert()) {
+            multiRowSql = buildMultiRowInsertSql(tableName, allColumns, groupSize);
+        }
+
+        int inserted = 0;
+        try {
+            while (true) {
+                Chunk chunk = chunks.take();
+                if (chunk.failure() instanceof Error error) throw error;
+                if (chunk.failure() != null) throw (RuntimeException) chunk.failure();
+
+                long started = System.nanoTime();
+                executeChunk(chunk.rows(), insertSql, multiRowSql, groupSize);
+                uploadMetrics.recordBatch(metricsTableName(tableName), System.nanoTime() - started);
+                inserted += chunk.rows().size();
+                progress.rowsInserted(chunk.rows().size());
+                if (chunk.last()) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + tableName, e);
+        } finally {
+            builder.cancel(true);
+        }
+        return inserted;
+    }
+
+    private void executeChunk(List<Object[]> chunk, String insertSql, String multiRowSql, int groupSize) {
+        if (chunk.isEmpty()) return;
+
+        int grouped = 0;
+        if (multiRowSql != null) {
+            grouped = chunk.size() - chunk.size() % groupSize;
+            List<Object[]> groupArgs = new ArrayList<>(grouped / groupSize);
+            for (int start = 0; start < grouped; start += groupSize) {
+                int width = chunk.get(start).length;
+                Object[] args = new Object[width * groupSize];
+                for (int i = 0; i < groupSize; i++) {
+                    System.arraycopy(chunk.get(start + i), 0, args, i * width, width);
+                }
+                groupArgs.add(args);
+            }
+            if (!groupArgs.isEmpty()) jdbcTemplate.batchUpdate(multiRowSql, groupArgs);
+        }
+        if (grouped < chunk.size()) {
+            jdbcTemplate.batchUpdate(insertSql, chunk.subList(grouped, chunk.size()));
+        }
+    }
+
+    /**
+     * Loads {@code selection} (all rows when null) of a columnar batch in chunks of {@code upload.load.chunk-size},
+     * binding each parameter with its primitive setter. There is nothing to build ahead, so unlike
+     * {@link #loadRows} this runs entirely on the caller's thread.
+     */
+    private int loadBatch(String tableName, List<String> allColumns, String insertSql, ColumnarRowBatch batch,
+                          int[] selection, String createdBy, UploadProgress progress) {
+        RowBinder binder = new RowBinder(batch, allColumns, createdBy, LocalDateTime.now());
+        int total = selection == null ? batch.size() : selection.length;
+
+        String multiRowSql = null;
+        int groupSize = Math.min(rowsPerStatement, maxParametersPerStatement / Math.max(1, allColumns.size()));
+        if (groupSize > 1 && supportsMultiRowInsert()) {
+            multiRowSql = buildMultiRowInsertSql(tableName, allColumns, groupSize);
+        }
+
+        for (int start = 0; start < total; start += chunkSize) {
+            int end = Math.min(total, start + chunkSize);
+            int grouped = multiRowSql == null ? 0 : (end - start) - (end - start) % groupSize;
+            long started = System.nanoTime();
+            if (grouped > 0) {
+                bindBatch(multiRowSql, grouped / groupSize, groupSize, start, selection, binder);
+            }
+            if (start + grouped < end) {
+                bindBatch(insertSql, end - start - grouped, 1, start + grouped, selection, binder);
+            }
+            uploadMetrics.recordBatch(metricsTableName(tableName), System.nanoTime() - started);
+            progress.rowsInserted(end - start);
+        }
+        return total;
+    }
+
+    private void bindBatch(String sql, int statements, int rowsPerGroup, int first, int[] selection, RowBinder binder) {
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int statement) throws SQLException {
+                for (int i = 0; i < rowsPerGroup; i++) {
+                    int position = first + statement * rowsPerGroup + i;
+                    binder.bind(ps, i * binder.width(), selection == null ? position : selection[position]);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return statements;
+            }
+        });
+    }
+
+    /**
+     * Shadow loads are reported under the live table's name.
+     */
+    private static String metricsTableName(String tableName) {
+        return SHADOW_NAME.matcher(tableName).matches() ? tableName.substring(0, tableName.lastIndexOf(SHADOW_SUFFIX)) : tableName;
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            chunks.add(items.subList(start, Math.min(items.size(), start + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private static Object[] values(ColumnarRowBatch data, int row, int[] columns) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i] < 0 ? null : data.get(row, columns[i]);
+        }
+        return values;
+    }
 
-        jdbcTemplate.batchUpdate(insertSql, batchArgs);
+    /**
+     * Compares values read back from JDBC with uploaded ones: numbers of any type compare by value, JDBC dates and
+     * timestamps as the {@code java.time} values uploads carry, everything else by its string form.
+     */
+    static String normalize(Object value) {
+        if (value == null) return null;
+        if (value instanceof java.sql.Timestamp timestamp) return timestamp.toLocalDateTime().toString();
+        if (value instanceof java.sql.Date date) return date.toLocalDate().toString();
+        if (value instanceof Number number) {
+            try {
+                return new BigDecimal(number.toString()).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                return number.toString();
+            }
+        }
+        return value.toString();
+    }
 
-        log.info("Inserted {} rows into {}", data.size(), tableName);
+    /**
+     * The fetch size that makes the driver stream a forward-only result. MySQL Connector/J ignores positive fetch
+     * sizes and buffers the whole result unless the URL sets {@code useCursorFetch=true}; it streams row by row
+     * when given {@link Integer#MIN_VALUE}, which the other drivers reject. MariaDB Connector/J honours the size.
+     */
+    private int streamingFetchSize(int fetchSize) {
+        return "mysql".equals(databaseProduct()) ? Integer.MIN_VALUE : fetchSize;
+    }
+
+    private boolean supportsMultiRowInsert() {
+        return multiRowInsertEnabled && MULTI_ROW_INSERT_DATABASES.contains(databaseProduct());
+    }
+
+    private String databaseProduct() {
+        String product = databaseProduct;
+        if (product == null) {
+            String name = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            product = name == null ? "" : name.toLowerCase();
+            databaseProduct = product;
+        }
+        return product;
     }
 
     private void validateTableAndColumns(String tableName, List<BulkUploadFormColumn> columns) {
@@ -75,12 +635,18 @@ public class DynamicTableService {
                 .toArray();
     }
 
-    private String buildSafeInsertSql(String tableName, List<String> columns) {
+    String buildSafeInsertSql(String tableName, List<String> columns) {
         String colList = String.join(", ", columns);
         String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
         return String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, colList, placeholders);
     }
 
+    private String buildMultiRowInsertSql(String tableName, List<String> columns, int rows) {
+        String colList = String.join(", ", columns);
+        String group = columns.stream().map(c -> "?").collect(Collectors.joining(", ", "(", ")"));
+        return String.format("INSERT INTO %s (%s) VALUES %s", tableName, colList, String.join(", ", Collections.nCopies(rows, group)));
+    }
+
     private boolean isValidTableName(String name) {
         return StringUtils.hasText(name) && name.matches("^[a-zA-Z][a-zA-Z0-9_]*$");
     }
@@ -111,7 +677,136 @@ public class DynamicTableService {
         }
     }
 
+    /**
+     * Reads {@code columns} of every live row through a forward-only cursor, {@code fetchSize} rows per round
+     * trip, so the table is never held in memory. PostgreSQL only streams inside a transaction; MySQL streams row
+     * by row, see {@link #streamingFetchSize}. {@code action} must not use the connection while rows are read.
+     */
+    public void forEachRow(UploadPlan plan, List<String> columns, int fetchSize, Consumer<Object[]> action) {
+        Set<String> known = new HashSet<>(plan.getInsertColumns());
+        if (!known.containsAll(columns)) {
+            throw new IllegalArgumentException("Unknown columns for " + plan.getTableName() + ": " + columns);
+        }
+        String sql = String.format("SELECT %s FROM %s", String.join(", ", columns), plan.getTableName());
+        int streamingFetchSize = streamingFetchSize(fetchSize);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(streamingFetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            action.accept(values);
+        });
+    }
+
+    /**
+     * Values of {@code columns} for the live rows whose {@code keyColumns} equal {@code keyValues}.
+     */
+    public List<Object[]> findRows(UploadPlan plan, List<String> columns, List<String> keyColumns, Object[] keyValues) {
+        Set<String> known = new HashSet<>(plan.getInsertColumns());
+        if (!known.containsAll(columns) || !known.containsAll(keyColumns)) {
+            throw new IllegalArgumentException("Unknown columns for " + plan.getTableName() + ": " + columns + ", " + keyColumns);
+        }
+        String sql = String.format("SELECT %s FROM %s WHERE %s", String.join(", ", columns), plan.getTableName(),
+                keyColumns.stream().map(col -> col + " = ?").collect(Collectors.joining(" AND ")));
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            return values;
+        }, keyValues);
+    }
+
     public JdbcTemplate getJdbcTemplate() {
         return jdbcTemplate;
     }
+
+    /**
+     * {@code failure} is the RuntimeException or Error that stopped the builder.
+     */
+    private record Chunk(List<Object[]> rows, boolean last, Throwable failure) {
+    }
+
+    /**
+     * Loads rows into the given table (the live one or its shadow copy) with the given single-row INSERT.
+     */
+    @FunctionalInterface
+    private interface TableLoader {
+        int load(String tableName, String insertSql);
+    }
+
+    /**
+     * Binds one batch row to the parameters of an INSERT over {@code allColumns}. Audit columns and columns the
+     * form does not fill are resolved once; form columns are read from their primitive arrays.
+     */
+    private static final class RowBinder {
+        private final ColumnarRowBatch batch;
+        private final int[] sources;
+        private final Object[] fixed;
+
+        RowBinder(ColumnarRowBatch batch, List<String> allColumns, String createdBy, LocalDateTime now) {
+            this.batch = batch;
+            this.sources = new int[allColumns.size()];
+            this.fixed = new Object[allColumns.size()];
+            for (int i = 0; i < sources.length; i++) {
+                String col = allColumns.get(i);
+                sources[i] = switch (col) {
+                    case "created_by", "created_date" -> -1;
+                    default -> batch.columnIndex(col);
+                };
+                fixed[i] = switch (col) {
+                    case "created_by" -> createdBy;
+                    case "created_date" -> now;
+                    default -> batch.getConstants().get(col);
+                };
+            }
+        }
+
+        int width() {
+            return sources.length;
+        }
+
+        void bind(PreparedStatement ps, int offset, int row) throws SQLException {
+            for (int i = 0; i < sources.length; i++) {
+                int index = offset + i + 1;
+                int c = sources[i];
+                if (c < 0) {
+                    StatementCreatorUtils.setParameterValue(ps, index, SqlTypeValue.TYPE_UNKNOWN, fixed[i]);
+                    continue;
+                }
+                ColumnarRowBatch.ColumnType type = batch.columnType(c);
+                if (batch.isNull(row, c)) {
+                    ps.setNull(index, sqlType(type));
+                    continue;
+                }
+                switch (type) {
+                    case INT -> ps.setInt(index, batch.getInt(row, c));
+                    case LONG -> ps.setLong(index, batch.getLong(row, c));
+                    case DOUBLE -> ps.setDouble(index, batch.getDouble(row, c));
+                    case BOOLEAN -> ps.setBoolean(index, batch.getBoolean(row, c));
+                    case STRING -> ps.setString(index, batch.getString(row, c));
+                    case DATE -> ps.setObject(index, batch.getDate(row, c), Types.DATE);
+                    case TIMESTAMP -> ps.setObject(index, batch.getTimestamp(row, c), Types.TIMESTAMP);
+                    case DECIMAL -> ps.setBigDecimal(index, batch.getDecimal(row, c));
+                }
+            }
+        }
+
+        private static int sqlType(ColumnarRowBatch.ColumnType type) {
+            return switch (type) {
+                case INT -> Types.INTEGER;
+                case LONG -> Types.BIGINT;
+                case DOUBLE -> Types.DOUBLE;
+                case BOOLEAN -> Types.BOOLEAN;
+                case STRING -> Types.VARCHAR;
+                case DATE -> Types.DATE;
+                case TIMESTAMP -> Types.TIMESTAMP;
+                case DECIMAL -> Types.DECIMAL;
+            };
+        }
+    }
 }
@@ -0,0 +1,296 @@
+package com.example.demo.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads one sheet of an uploaded workbook (the first unless named) and hands it over one row at a time.
+ * Files at or above the streaming threshold are parsed with the POI event model (SAX),
+ * so memory depends on the row width rather than the row count; smaller files keep
+ * using the {@link XSSFWorkbook} DOM. Both paths hand numeric, date and boolean cells over as typed values
+ * in a {@link SheetRow} rather than formatting them to text, tagged with the workbook's date system (1900 or 1904).
+ */
+@Service
+public class ExcelSheetReader {
+
+    private static final Logger log = LoggerFactory.getLogger(ExcelSheetReader.class);
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void handleRow(int rowIndex, SheetRow row);
+    }
+
+    private final long streamingThresholdBytes;
+
+    public ExcelSheetReader(@Value("${upload.excel.streaming-threshold-bytes:1048576}") long streamingThresholdBytes) {
+        this.streamingThresholdBytes = streamingThresholdBytes;
+    }
+
+    public void read(MultipartFile file, RowHandler handler) throws IOException {
+        read(file, null, handler);
+    }
+
+    /**
+     * Reads the sheet named {@code sheetName}, or the first one when it is null; a 400 if there is no such sheet.
+     */
+    public void read(MultipartFile file, String sheetName, RowHandler handler) throws IOException {
+        if (file.getSize() >= streamingThresholdBytes) {
+            withPackageFile(file, path -> readStreaming(path, sheetName, handler));
+        } else {
+            readWorkbook(file, sheetName, handler);
+        }
+    }
+
+    /**
+     * Names of the workbook's sheets in workbook order, read without parsing any sheet.
+     */
+    public List<String> sheetNames(MultipartFile file) throws IOException {
+        List<String> names = new ArrayList<>();
+        withPackageFile(file, path -> {
+            try {
+                OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ);
+                try {
+                    XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+                    while (sheets.hasNext()) {
+                        sheets.next().close();
+                        names.add(sheets.getSheetName());
+                    }
+                } finally {
+                    pkg.revert();
+                }
+            } catch (OpenXML4JException e) {
+                throw new IOException("Error reading Excel file", e);
+            }
+        });
+        return names;
+    }
+
+    private void readWorkbook(MultipartFile file, String sheetName, RowHandler handler) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file.getInputStream())) {
+            boolean date1904 = workbook.isDate1904();
+            Sheet sheet = sheetName == null ? workbook.getSheetAt(0) : workbook.getSheet(sheetName);
+            if (sheet == null) throw noSuchSheet(sheetName);
+            for (int rowIndex = 0; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
+                Row row = sheet.getRow(rowIndex);
+                if (row == null) continue;
+
+                SheetRow cells = new SheetRow(Math.max(row.getLastCellNum(), 1), date1904);
+                for (int i = 0; i < row.getLastCellNum(); i++) {
+                    addCell(cells, row.getCell(i));
+                }
+                handler.handleRow(rowIndex, cells);
+            }
+        }
+    }
+
+    private void withPackageFile(MultipartFile file, PathAction action) throws IOException {
+        if (file instanceof SpooledMultipartFile spooled) {
+            action.run(spooled.getPath());
+            return;
+        }
+
+        // OPCPackage.open(InputStream) inflates every zip entry in memory, so spool to disk first
+        Path tempFile = Files.createTempFile("excel-upload-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+            action.run(tempFile);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("Could not delete temp file {}: {}", tempFile, e.getMessage());
+            }
+        }
+    }
+
+    private void readStreaming(Path path, String sheetName, RowHandler handler) throws IOException {
+        try {
+            OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ);
+            try {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                StylesTable styles = reader.getStylesTable();
+                boolean date1904 = isDate1904(reader);
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+                while (sheets.hasNext()) {
+                    try (InputStream sheet = sheets.next()) {
+                        if (sheetName != null && !sheetName.equals(sheets.getSheetName())) continue;
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        UploadDataFormatter formatter = new UploadDataFormatter();
+                        RowCollector collector = new RowCollector(handler, formatter, date1904);
+                        parser.setContentHandler(new CellTypeAwareHandler(styles, strings, collector, formatter));
+                        parser.parse(new InputSource(sheet));
+                        return;
+                    }
+                }
+                if (sheetName != null) throw noSuchSheet(sheetName);
+            } finally {
+                pkg.revert();
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Error streaming Excel file", e);
+        }
+    }
+
+    /**
+     * Whether workbook.xml sets {@code <workbookPr date1904="1"/>}, read with a SAX pass over that part alone.
+     */
+    private static boolean isDate1904(XSSFReader reader)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        boolean[] date1904 = {false};
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("workbookPr".equals(localName)) {
+                    String value = attributes.getValue("date1904");
+                    date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                }
+            }
+        });
+        try (InputStream workbook = reader.getWorkbookData()) {
+            parser.parse(new InputSource(workbook));
+        }
+        return date1904[0];
+    }
+
+    private static ResponseStatusException noSuchSheet(String sheetName) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Workbook has no sheet named " + sheetName);
+    }
+
+    private static void addCell(SheetRow row, Cell cell) {
+        if (cell == null) {
+            row.addBlank();
+            return;
+        }
+        switch (cell.getCellType()) {
+            case STRING -> row.addText(cell.getStringCellValue().trim());
+            case NUMERIC -> {
+                if (DateUtil.isCellDateFormatted(cell)) row.addDate(cell.getNumericCellValue());
+                else row.addNumber(cell.getNumericCellValue());
+            }
+            case BOOLEAN -> row.addBoolean(cell.getBooleanCellValue());
+            case FORMULA -> row.addText(cell.getCellFormula());
+            default -> row.addBlank();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PathAction {
+        void run(Path path) throws IOException;
+    }
+
+    /**
+     * Notes the type attribute of each cell before {@link XSSFSheetXMLHandler} sees it: boolean cells reach
+     * {@link RowCollector} only as the text "TRUE"/"FALSE", which would not compare equal to the DOM path's values.
+     */
+    private static final class CellTypeAwareHandler extends XSSFSheetXMLHandler {
+        private final RowCollector collector;
+
+        private CellTypeAwareHandler(StylesTable styles, ReadOnlySharedStringsTable strings, RowCollector collector,
+                                     UploadDataFormatter formatter) {
+            super(styles, strings, collector, formatter, true);
+            this.collector = collector;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if ("c".equals(localName)) collector.booleanCell = "b".equals(attributes.getValue("t"));
+            super.startElement(uri, localName, qName, attributes);
+        }
+    }
+
+    /**
+     * Collects the cells of the current SAX row, padding skipped columns with blanks. Numeric cells are taken
+     * from the formatter as the raw value it was given rather than the text it returned, boolean cells are
+     * recognized by the flag {@link CellTypeAwareHandler} sets.
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final UploadDataFormatter formatter;
+        private final boolean date1904;
+        private SheetRow cells = new SheetRow();
+        private boolean booleanCell;
+
+        private RowCollector(RowHandler handler, UploadDataFormatter formatter, boolean date1904) {
+            this.handler = handler;
+            this.formatter = formatter;
+            this.date1904 = date1904;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new SheetRow(Math.max(cells.size(), 1), date1904);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.handleRow(rowNum, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+            while (cells.size() < column) cells.addBlank();
+            if (formatter.pending) {
+                formatter.pending = false;
+                if (formatter.date) cells.addDate(formatter.value);
+                else cells.addNumber(formatter.value);
+            } else if (booleanCell && ("TRUE".equals(formattedValue) || "FALSE".equals(formattedValue))) {
+                // formula cells of boolean type come through as their formula text, as on the DOM path
+                cells.addBoolean("TRUE".equals(formattedValue));
+            } else {
+                cells.addText(formattedValue == null ? "" : formattedValue.trim());
+            }
+        }
+    }
+
+    /**
+     * Skips formatting altogether: {@link XSSFSheetXMLHandler} calls it for each styled numeric cell right
+     * before passing the cell on, so it parks the value (and whether the style is a date format, which is
+     * how the DOM path tells dates apart) for {@link RowCollector} to pick up.
+     */
+    private static final class UploadDataFormatter extends DataFormatter {
+        private boolean pending;
+        private boolean date;
+        private double value;
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            this.pending = true;
+            this.date = DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value);
+            this.value = value;
+            return "";
+        }
+    }
+}
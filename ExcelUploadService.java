@@ -1,23 +1,22 @@
 package com.example.demo.service;
 
-import com.example.demo.dto.BulkUploadFormColumn;
+import com.example.demo.dto.MergeResult;
 import com.example.demo.dto.ValidationError;
 import com.example.demo.entity.LookUpTableEntity;
 import com.example.demo.entity.RuleAppTableVersionEntity;
-import com.example.demo.entity.RuleappHistoricalDataEntity;
 import com.example.demo.repository.LookUpTableRepository;
 import com.example.demo.repository.RuleAppTableVersionRepository;
-import com.example.demo.repository.RuleappHistoricalDataRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -25,239 +24,418 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class ExcelUploadService {
 
     private static final Logger log = LoggerFactory.getLogger(ExcelUploadService.class);
+    private static final int CAST_ERRORS = 0;
+    private static final int TIMEOUT_ERRORS = 1;
 
     private final LookUpTableRepository lookUpTableRepository;
     private final RuleAppTableVersionRepository ruleAppTableVersionRepository;
-    private final RuleappHistoricalDataRepository ruleappHistoricalDataRepository;
+    private final HistoricalSnapshotStore historicalSnapshotStore;
     private final DynamicTableService dynamicTableService;
-    private final ObjectMapper objectMapper;
+    private final ExcelSheetReader excelSheetReader;
+    private final DelimitedTextReader delimitedTextReader;
+    private final UploadPlanCache uploadPlanCache;
+    private final RowValidationPipeline rowValidationPipeline;
+    private final UploadMetrics uploadMetrics;
+    private final ValidationReportStore validationReportStore;
+    private final LookupTableCache lookupTableCache;
+    private final TableUploadLocks tableUploadLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final ReloadMode defaultReloadMode;
+    private final boolean responseTimings;
 
     public ExcelUploadService(LookUpTableRepository lookUpTableRepository,
                               RuleAppTableVersionRepository ruleAppTableVersionRepository,
-                              RuleappHistoricalDataRepository ruleappHistoricalDataRepository,
-                              DynamicTableService dynamicTableService) {
+                              HistoricalSnapshotStore historicalSnapshotStore,
+                              DynamicTableService dynamicTableService,
+                              ExcelSheetReader excelSheetReader,
+                              DelimitedTextReader delimitedTextReader,
+                              UploadPlanCache uploadPlanCache,
+                              RowValidationPipeline rowValidationPipeline,
+                              UploadMetrics uploadMetrics,
+                              ValidationReportStore validationReportStore,
+                              LookupTableCache lookupTableCache,
+                              TableUploadLocks tableUploadLocks,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${upload.reload-mode:TRUNCATE}") ReloadMode defaultReloadMode,
+                              @Value("${upload.metrics.response-timings:false}") boolean responseTimings) {
         this.lookUpTableRepository = lookUpTableRepository;
         this.ruleAppTableVersionRepository = ruleAppTableVersionRepository;
-        this.ruleappHistoricalDataRepository = ruleappHistoricalDataRepository;
+        this.historicalSnapshotStore = historicalSnapshotStore;
         this.dynamicTableService = dynamicTableService;
-
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        this.objectMapper.registerModule(new JavaTimeModule());
-        this.objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.excelSheetReader = excelSheetReader;
+        this.delimitedTextReader = delimitedTextReader;
+        this.uploadPlanCache = uploadPlanCache;
+        this.rowValidationPipeline = rowValidationPipeline;
+        this.uploadMetrics = uploadMetrics;
+        this.validationReportStore = validationReportStore;
+        this.lookupTableCache = lookupTableCache;
+        this.tableUploadLocks = tableUploadLocks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultReloadMode = defaultReloadMode;
+        this.responseTimings = responseTimings;
     }
 
-    @Transactional
     public Map<String, Object> uploadExcelFile(String tableName, List<String> groups, MultipartFile file) {
-        LookUpTableEntity lookUpTable = lookUpTableRepository.findByTableName(tableName)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Table not found: " + tableName));
-
-        if (!hasUploadPermission(lookUpTable.getUploadableByGroups(), groups)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authorized to upload to this table");
-        }
-
-        List<BulkUploadFormColumn> bulkUploadForm = parseBulkUploadForm(lookUpTable.getBulkUploadForm());
-        List<String> keyColumns = parseKeyColumns(lookUpTable.getKeyColumns());
-
-        List<Map<String, Object>> excelData = validateAndExtractExcelData(file, bulkUploadForm, keyColumns);
-
-        String currentUser = "currentUser"; // TODO: Replace with SecurityContext
-        List<Map<String, Object>> finalData = addAuditFields(excelData, currentUser);
+        return uploadExcelFile(tableName, groups, file, defaultReloadMode);
+    }
 
-        log.info("Preparing to insert {} rows into {}", finalData.size(), tableName);
+    public Map<String, Object> uploadExcelFile(String tableName, List<String> groups, MultipartFile file, ReloadMode reloadMode) {
+        return uploadExcelFile(tableName, groups, file, reloadMode, new UploadProgress());
+    }
 
-        String versionString = updateTableVersion(tableName, currentUser);
+    /**
+     * Stage timings, throughput and allocation are published through {@link UploadMetrics}; with
+     * {@code upload.metrics.response-timings} the per-stage breakdown is also returned under {@code timings}.
+     * The file is parsed and validated before a transaction is opened, so a slow parse does not hold a database
+     * connection; version, history and live contents are then written in one transaction, as {@link #commitBatch}
+     * does for batches.
+     */
+    public Map<String, Object> uploadExcelFile(String tableName, List<String> groups, MultipartFile file,
+                                               ReloadMode reloadMode, UploadProgress progress) {
+        UploadPlan plan = authorize(tableName, groups);
+        String currentUser = currentUser();
+        UploadMetrics.Recording recording = uploadMetrics.start(tableName, file.getSize());
+        boolean success = false;
+        int rows = 0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            enterStage(UploadProgress.Stage.PARSING, progress, recording);
+            ColumnarRowBatch finalData = validateAndExtractExcelData(file, null, plan, progress, recording);
+            rows = finalData.size();
 
-        dynamicTableService.truncateAndReloadTable(tableName, finalData, bulkUploadForm, currentUser);
+            addAuditFields(finalData, currentUser);
 
-        storeHistoricalData(tableName, finalData, versionString, currentUser);
+            log.info("Preparing to insert {} rows into {}", finalData.size(), tableName);
 
-        return Map.of(
-                "message", "Excel file processed successfully",
-                "totalRows", finalData.size(),
-                "version", versionString
-        );
+            transactionTemplate.executeWithoutResult(status ->
+                    commitUpload(tableName, plan, finalData, currentUser, reloadMode, progress, recording, result));
+            success = true;
+        } finally {
+            Map<String, Object> timings = recording.finish(success, rows);
+            log.info("Upload to {} {} in {} ms: {}", tableName, success ? "finished" : "failed", timings.get("total"), timings);
+            if (success && responseTimings) result.put("timings", timings);
+        }
+        return result;
     }
 
-    private boolean hasUploadPermission(String uploadableByGroups, List<String> userGroups) {
-        if (uploadableByGroups == null || userGroups == null) return false;
-        try {
-            List<String> allowedGroups = objectMapper.readValue(uploadableByGroups, new TypeReference<>() {});
-            return userGroups.stream().anyMatch(allowedGroups::contains);
-        } catch (Exception e) {
-            log.error("Error parsing uploadableByGroups: {}", e.getMessage());
-            return false;
+    private void commitUpload(String tableName, UploadPlan plan, ColumnarRowBatch finalData, String currentUser,
+                              ReloadMode reloadMode, UploadProgress progress, UploadMetrics.Recording recording,
+                              Map<String, Object> result) {
+        enterStage(UploadProgress.Stage.VERSIONING, progress, recording);
+        tableUploadLocks.lockForTransaction(List.of(tableName));
+        TableVersion tableVersion = updateTableVersion(tableName, currentUser);
+        String versionString = tableVersion.version();
+
+        enterStage(UploadProgress.Stage.STORING_HISTORY, progress, recording);
+        storeHistoricalData(tableName, finalData, tableVersion, plan.getKeyColumns(), currentUser);
+
+        result.put("message", "Excel file processed successfully");
+        result.put("totalRows", finalData.size());
+        result.put("version", versionString);
+
+        // reload last: TRUNCATE, the shadow swap and the merge all lock live rows until commit
+        enterStage(UploadProgress.Stage.LOADING, progress, recording);
+        if (reloadMode == ReloadMode.MERGE) {
+            MergeResult merge = dynamicTableService.mergeTable(plan, finalData, currentUser, progress);
+            result.put("inserted", merge.getInserted());
+            result.put("updated", merge.getUpdated());
+            result.put("deleted", merge.getDeleted());
+            result.put("unchanged", merge.getUnchanged());
+        } else {
+            dynamicTableService.reloadTable(plan, finalData, currentUser, reloadMode, progress);
         }
     }
 
-    private List<BulkUploadFormColumn> parseBulkUploadForm(String json) {
-        if (json == null || json.isBlank()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bulk upload form is null or empty");
+    /**
+     * Fails unless the table exists and one of {@code groups} may upload to it; used before accepting file content.
+     * Does not compile the table's upload plan.
+     */
+    @Transactional(readOnly = true)
+    public void checkUploadPermission(String tableName, List<String> groups) {
+        checkPermission(tableName, groups);
+    }
+
+    /**
+     * Versions, history and live contents of every table of a batch upload, in one transaction that holds all of
+     * their {@link TableUploadLocks}. Tables staged by
+     * {@link DynamicTableService#stageShadowTable} are swapped in, the others reloaded in {@code mode}; either way
+     * the live tables are touched last, after all versions and history are written.
+     */
+    @Transactional
+    public Map<String, Map<String, Object>> commitBatch(List<BatchUploadService.PreparedTable> tables, ReloadMode mode,
+                                                        String currentUser) {
+        tableUploadLocks.lockForTransaction(tables.stream().map(table -> table.plan().getTableName()).toList());
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        for (BatchUploadService.PreparedTable table : tables) {
+            String tableName = table.plan().getTableName();
+            TableVersion tableVersion = updateTableVersion(tableName, currentUser);
+            storeHistoricalData(tableName, table.rows(), tableVersion, table.plan().getKeyColumns(), currentUser);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("totalRows", table.rows().size());
+            result.put("version", tableVersion.version());
+            results.put(tableName, result);
         }
-        try {
-            List<BulkUploadFormColumn> result = objectMapper.readValue(json, new TypeReference<>() {});
-            if (result.isEmpty()) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bulk upload form is empty after parsing");
+
+        for (BatchUploadService.PreparedTable table : tables) {
+            UploadPlan plan = table.plan();
+            if (table.shadowTable() != null) {
+                dynamicTableService.swapShadowTable(plan, table.shadowTable());
+            } else if (mode == ReloadMode.MERGE) {
+                MergeResult merge = dynamicTableService.mergeTable(plan, table.rows(), currentUser);
+                Map<String, Object> result = results.get(plan.getTableName());
+                result.put("inserted", merge.getInserted());
+                result.put("updated", merge.getUpdated());
+                result.put("deleted", merge.getDeleted());
+                result.put("unchanged", merge.getUnchanged());
+            } else {
+                dynamicTableService.reloadTable(plan, table.rows(), currentUser, mode, new UploadProgress());
             }
-            return result;
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid bulk upload form format", e);
         }
+        return results;
     }
 
-    private List<String> parseKeyColumns(String json) {
-        if (json == null || json.isBlank()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Key columns is null or empty");
-        }
-        try {
-            List<String> result = objectMapper.readValue(json, new TypeReference<>() {});
-            if (result.isEmpty()) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Key columns are empty after parsing");
-            }
-            return result;
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid key columns format", e);
+    /**
+     * Parses and validates one table of a batch upload ({@code sheetName} of a workbook, or a whole delimited
+     * file) into a batch carrying the audit columns.
+     */
+    ColumnarRowBatch extract(UploadPlan plan, MultipartFile file, String sheetName, String currentUser,
+                             UploadProgress progress, UploadMetrics.Recording recording) {
+        enterStage(UploadProgress.Stage.PARSING, progress, recording);
+        ColumnarRowBatch rows = validateAndExtractExcelData(file, sheetName, plan, progress, recording);
+        addAuditFields(rows, currentUser);
+        return rows;
+    }
+
+    /**
+     * The table's upload plan, compiled (and its form checked) only once the caller is known to be allowed to upload.
+     */
+    UploadPlan authorize(String tableName, List<String> groups) {
+        return uploadPlanCache.getPlan(tableName, checkPermission(tableName, groups));
+    }
+
+    /**
+     * Plans for several tables, in order. Every table is checked before any plan is compiled, so a caller without
+     * access to one of them learns nothing about the forms; each table is looked up once.
+     */
+    List<UploadPlan> authorizeAll(List<String> tableNames, List<String> groups) {
+        List<LookUpTableEntity> lookUpTables = tableNames.stream().map(tableName -> checkPermission(tableName, groups)).toList();
+        List<UploadPlan> plans = new ArrayList<>(tableNames.size());
+        for (int i = 0; i < tableNames.size(); i++) {
+            plans.add(uploadPlanCache.getPlan(tableNames.get(i), lookUpTables.get(i)));
         }
+        return plans;
     }
 
-    private List<Map<String, Object>> validateAndExtractExcelData(
-            MultipartFile file, List<BulkUploadFormColumn> bulkUploadForm, List<String> keyColumns) {
+    /**
+     * The authenticated user recorded in audit columns, table versions and history, taken from the calling thread's
+     * security context; a 401 without one, so no upload is attributed to a made-up name.
+     */
+    String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Uploads need an authenticated user");
+        }
+        return authentication.getName();
+    }
 
-        List<Map<String, Object>> excelData = new ArrayList<>();
-        List<ValidationError> validationErrors = new ArrayList<>();
-        Map<String, Integer> keyOccurrences = new HashMap<>();
+    private LookUpTableEntity checkPermission(String tableName, List<String> groups) {
+        LookUpTableEntity lookUpTable = lookUpTableRepository.findByTableName(tableName)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Table not found: " + tableName));
 
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            if (sheet.getPhysicalNumberOfRows() < 2) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Excel must contain headers and at least one row");
-            }
+        if (!hasUploadPermission(uploadPlanCache.getUploadableByGroups(lookUpTable), groups)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authorized to upload to this table");
+        }
+        return lookUpTable;
+    }
 
-            Map<String, Integer> columnIndexMap = extractHeaderMapping(sheet.getRow(0), bulkUploadForm);
+    private boolean hasUploadPermission(List<String> allowedGroups, List<String> userGroups) {
+        if (userGroups == null) return false;
+        return userGroups.stream().anyMatch(allowedGroups::contains);
+    }
 
-            for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
-                Row row = sheet.getRow(rowIndex);
-                if (row == null) continue;
+    private void enterStage(UploadProgress.Stage stage, UploadProgress progress, UploadMetrics.Recording recording) {
+        progress.setStage(stage);
+        recording.stage(stage);
+    }
 
-                Map<String, Object> rowData = processRow(row, bulkUploadForm, columnIndexMap, validationErrors, rowIndex);
-                String key = buildKey(rowData, keyColumns);
+    /**
+     * Parses and validates the file into one batch. Errors go to a {@link ValidationErrorReport}, which keeps the
+     * rejection message bounded; in {@link ValidationErrorMode#FAIL_FAST} reading stops once it is full.
+     */
+    private ColumnarRowBatch validateAndExtractExcelData(MultipartFile file, String sheetName, UploadPlan plan,
+                                                         UploadProgress progress, UploadMetrics.Recording recording) {
+        ColumnarRowBatch excelData = plan.newBatch();
+        int[] keyIndexes = plan.getKeyColumnIndexes();
+        DuplicateKeyIndex keyIndex = keyIndexes.length == 0 ? null : new DuplicateKeyIndex(excelData, keyIndexes);
+        String keyName = String.join("|", plan.getKeyColumns() == null ? List.of() : plan.getKeyColumns());
+        int[][] columnIndexes = new int[1][];
+        char delimiter = delimitedTextReader.delimiterOf(file);
+
+        try (ValidationErrorReport report = validationReportStore.start(plan.getTableName())) {
+            Consumer<ValidatedBatch> merger = batch -> {
+                progress.rowsValidated(batch.rowIndexes().length);
+                batch.errors().forEach(report::add);
+                uploadMetrics.validationErrors(plan.getTableName(), "pattern",
+                        batch.errors().size() - batch.castErrors() - batch.timeoutErrors());
+                uploadMetrics.validationErrors(plan.getTableName(), "cast", batch.castErrors());
+                uploadMetrics.validationErrors(plan.getTableName(), "regex-timeout", batch.timeoutErrors());
+                int first = excelData.size();
+                excelData.appendRows(batch.rows(), batch.rowIndexes().length);
+                if (keyIndex != null) {
+                    int keyColumn = keyIndexes[0] < 0 ? 0 : columnIndexes[0][keyIndexes[0]] + 1;
+                    for (int i = 0; i < batch.rowIndexes().length; i++) {
+                        int rowNumber = batch.rowIndexes()[i] + 1;
+                        int firstRowNumber = keyIndex.add(first + i, rowNumber);
+                        if (firstRowNumber >= 0) {
+                            report.add(new ValidationError(rowNumber, keyColumn, keyName, buildKey(excelData, first + i, keyIndexes),
+                                    "Duplicate key, first used at row " + firstRowNumber));
+                            uploadMetrics.validationErrors(plan.getTableName(), "duplicate", 1);
+                        }
+                    }
+                }
+                if (report.isLimitReached()) throw report.toException();
+            };
 
-                if (key != null && keyOccurrences.containsKey(key)) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                            String.format("Duplicate key '%s' at rows %d and %d", key, keyOccurrences.get(key), rowIndex + 1));
+            try (RowValidationPipeline.Session<RawRow, ValidatedBatch> pipeline =
+                         rowValidationPipeline.open(rows -> validateBatch(rows, plan, columnIndexes[0], report, recording), merger)) {
+                ExcelSheetReader.RowHandler handler = (rowIndex, cells) -> {
+                    if (columnIndexes[0] == null) {
+                        columnIndexes[0] = extractHeaderMapping(cells, plan);
+                        return;
+                    }
+                    progress.rowParsed();
+                    pipeline.add(new RawRow(rowIndex, cells));
+                };
+                if (delimiter != 0) {
+                    delimitedTextReader.read(file, delimiter, handler);
+                } else {
+                    excelSheetReader.read(file, sheetName, handler);
                 }
-                keyOccurrences.put(key, rowIndex + 1);
-                excelData.add(rowData);
+                pipeline.finish();
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        delimiter != 0 ? "Error reading delimited file" : "Error reading Excel file", e);
             }
 
-            if (!validationErrors.isEmpty()) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, formatValidationErrors(validationErrors));
+            if (excelData.size() == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Excel must contain headers and at least one row");
+            }
+            if (report.getCount() > 0) {
+                throw report.toException();
             }
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error reading Excel file", e);
         }
         return excelData;
     }
 
-    private Map<String, Integer> extractHeaderMapping(Row headerRow, List<BulkUploadFormColumn> form) {
+    /**
+     * Runs on a pipeline worker. Cells that cannot be cast or whose pattern runs out of time are reported like
+     * pattern mismatches, so {@link ValidationErrorMode#CAPPED} keeps reading past them.
+     */
+    private ValidatedBatch validateBatch(List<RawRow> rows, UploadPlan plan, int[] columnIndexes,
+                                         ValidationErrorReport report, UploadMetrics.Recording recording) {
+        if (report.isLimitReached()) {
+            return new ValidatedBatch(plan.newBatch(), new int[0], List.of(), 0, 0);
+        }
+        long allocatedBefore = UploadMetrics.allocatedBytes();
+        ColumnarRowBatch validated = plan.newBatch();
+        int[] rowIndexes = new int[rows.size()];
+        List<ValidationError> errors = new ArrayList<>();
+        int[] errorKinds = new int[2];
+        try {
+            for (RawRow row : rows) {
+                processRow(row.cells(), plan, columnIndexes, errors, errorKinds, row.rowIndex(), validated);
+                rowIndexes[validated.size() - 1] = row.rowIndex();
+            }
+            return new ValidatedBatch(validated, rowIndexes, errors, errorKinds[CAST_ERRORS], errorKinds[TIMEOUT_ERRORS]);
+        } finally {
+            recording.addAllocated(allocatedBefore, UploadMetrics.allocatedBytes());
+        }
+    }
+
+    private int[] extractHeaderMapping(List<String> headerRow, UploadPlan plan) {
         Map<String, Integer> columnIndexMap = new HashMap<>();
-        for (int i = 0; i < headerRow.getLastCellNum(); i++) {
-            Cell cell = headerRow.getCell(i);
-            if (cell != null) columnIndexMap.put(cell.getStringCellValue().trim(), i);
+        for (int i = 0; i < headerRow.size(); i++) {
+            String header = headerRow.get(i);
+            if (!header.isEmpty()) columnIndexMap.put(header, i);
         }
-        Set<String> expectedColumns = form.stream().map(BulkUploadFormColumn::getExcelColumnName).collect(Collectors.toSet());
+        Set<String> expectedColumns = plan.getColumns().stream().map(UploadPlan.PlanColumn::getExcelColumnName).collect(Collectors.toSet());
         if (!columnIndexMap.keySet().containsAll(expectedColumns)) {
             expectedColumns.removeAll(columnIndexMap.keySet());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing required columns: " + expectedColumns);
         }
-        return columnIndexMap;
+        return plan.getColumns().stream().mapToInt(col -> columnIndexMap.get(col.getExcelColumnName())).toArray();
     }
 
-    private Map<String, Object> processRow(Row row, List<BulkUploadFormColumn> form,
-                                           Map<String, Integer> columnIndexMap,
-                                           List<ValidationError> errors, int rowIndex) {
-        Map<String, Object> rowData = new HashMap<>();
-        for (BulkUploadFormColumn col : form) {
-            Integer columnIndex = columnIndexMap.get(col.getExcelColumnName());
-            if (columnIndex == null) continue;
-
-            String cellValue = getCellValueAsString(row.getCell(columnIndex));
-            if (col.getRegexPattern() != null && !cellValue.isEmpty() && !Pattern.matches(col.getRegexPattern(), cellValue)) {
+    /**
+     * Validates and appends one row. A cell that cannot be cast is reported and stored as null, so the row still
+     * fills every column; {@code errorKinds} counts cast failures and pattern timeouts for the metrics.
+     */
+    private void processRow(SheetRow cells, UploadPlan plan, int[] columnIndexes, List<ValidationError> errors,
+                            int[] errorKinds, int rowIndex, ColumnarRowBatch batch) {
+        List<UploadPlan.PlanColumn> columns = plan.getColumns();
+        for (int c = 0; c < columns.size(); c++) {
+            UploadPlan.PlanColumn col = columns.get(c);
+            int columnIndex = columnIndexes[c];
+
+            if (col.validatesText()) {
+                String cellValue = cells.text(columnIndex);
+                try {
+                    if (!col.matches(cellValue)) {
+                        errors.add(new ValidationError(rowIndex + 1, columnIndex + 1, col.getExcelColumnName(),
+                                cellValue, "Value does not match regex pattern"));
+                    } else if (!col.isAllowed(cellValue)) {
+                        errors.add(new ValidationError(rowIndex + 1, columnIndex + 1, col.getExcelColumnName(),
+                                cellValue, "Value is not one of " + col.getAllowedValues()));
+                    }
+                } catch (ResponseStatusException e) {
+                    errors.add(new ValidationError(rowIndex + 1, columnIndex + 1, col.getExcelColumnName(),
+                            cellValue, e.getReason()));
+                    errorKinds[TIMEOUT_ERRORS]++;
+                }
+            }
+            try {
+                col.appendTo(batch, c, cells, columnIndex);
+            } catch (ResponseStatusException e) {
+                batch.appendNull(c);
                 errors.add(new ValidationError(rowIndex + 1, columnIndex + 1, col.getExcelColumnName(),
-                        cellValue, "Value does not match regex pattern"));
+                        cells.text(columnIndex), e.getReason()));
+                errorKinds[CAST_ERRORS]++;
             }
-            rowData.put(col.getColumnName(), castValue(cellValue, col.getCastTo()));
         }
-        return rowData;
-    }
-
-    private String buildKey(Map<String, Object> row, List<String> keyColumns) {
-        if (keyColumns == null || keyColumns.isEmpty()) return null;
-        return keyColumns.stream().map(k -> Objects.toString(row.get(k), "")).collect(Collectors.joining("|"));
+        batch.endRow();
     }
 
-    private String formatValidationErrors(List<ValidationError> errors) {
-        return errors.stream()
-                .map(e -> String.format("Row %d, Col %d (%s): %s [Value='%s']",
-                        e.getRow(), e.getColumn(), e.getColumnName(), e.getErrorMessage(), e.getValue()))
-                .collect(Collectors.joining("; "));
+    private String buildKey(ColumnarRowBatch batch, int row, int[] keyIndexes) {
+        return Arrays.stream(keyIndexes)
+                .mapToObj(c -> c < 0 ? "" : Objects.toString(batch.get(row, c), ""))
+                .collect(Collectors.joining("|"));
     }
 
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue().trim();
-            case NUMERIC -> DateUtil.isCellDateFormatted(cell) ? cell.getDateCellValue().toString()
-                    : (cell.getNumericCellValue() == Math.floor(cell.getNumericCellValue())
-                    ? String.valueOf((long) cell.getNumericCellValue())
-                    : String.valueOf(cell.getNumericCellValue()));
-            case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-            case FORMULA -> cell.getCellFormula();
-            default -> "";
-        };
+    private void addAuditFields(ColumnarRowBatch data, String createdBy) {
+        data.setConstant("created_by", createdBy);
+        data.setConstant("created_date", LocalDateTime.now());
     }
 
-    private Object castValue(String value, String castTo) {
-        if (value == null || value.isBlank() || castTo == null) return value;
-        try {
-            return switch (castTo.toLowerCase()) {
-                case "int", "integer" -> Integer.parseInt(value.trim());
-                case "long" -> Long.parseLong(value.trim());
-                case "double", "decimal" -> Double.parseDouble(value.trim());
-                case "boolean" -> Boolean.parseBoolean(value.trim());
-                default -> value;
-            };
-        } catch (NumberFormatException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot cast value '" + value + "' to " + castTo);
-        }
-    }
-
-    private List<Map<String, Object>> addAuditFields(List<Map<String, Object>> data, String createdBy) {
-        LocalDateTime now = LocalDateTime.now();
-        return data.stream().map(row -> {
-            Map<String, Object> newRow = new HashMap<>(row);
-            newRow.put("created_by", createdBy);
-            newRow.put("created_date", now);
-            return newRow;
-        }).toList();
-    }
-
-    private String updateTableVersion(String tableName, String currentUser) {
+    private TableVersion updateTableVersion(String tableName, String currentUser) {
         LocalDateTime now = LocalDateTime.now();
         int version = 1, subVersion = 0;
+        String previousVersion = null;
 
         Optional<RuleAppTableVersionEntity> current = ruleAppTableVersionRepository
                 .findFirstByTableIdAndValidityEndIsNullOrderByValidityStartDesc(tableName);
 
         if (current.isPresent()) {
             RuleAppTableVersionEntity existing = current.get();
+            previousVersion = existing.getVersion() + "." + existing.getSubVersion();
             existing.setValidityEnd(now);
             existing.setLastUpdatedBy(currentUser);
             existing.setLastUpdatedDate(now);
@@ -279,22 +457,31 @@ public class ExcelUploadService {
         newVersion.setCreatedBy(currentUser);
         newVersion.setCreatedDate(now);
         ruleAppTableVersionRepository.save(newVersion);
+        lookupTableCache.versionCreated(tableName);
 
-        return version + "." + subVersion;
+        return new TableVersion(version + "." + subVersion, previousVersion);
     }
 
-    private void storeHistoricalData(String tableName, List<Map<String, Object>> data, String version, String currentUser) {
+    private void storeHistoricalData(String tableName, ColumnarRowBatch data, TableVersion version,
+                                     List<String> keyColumns, String currentUser) {
         try {
-            String jsonRecord = objectMapper.writeValueAsString(data);
-            RuleappHistoricalDataEntity historical = new RuleappHistoricalDataEntity();
-            historical.setTableId(tableName);
-            historical.setVersion(version);
-            historical.setRecord(jsonRecord);
-            historical.setCreatedBy(currentUser);
-            historical.setCreatedDate(LocalDateTime.now());
-            ruleappHistoricalDataRepository.save(historical);
+            historicalSnapshotStore.write(tableName, version.version(), version.previousVersion(), keyColumns, data, currentUser);
         } catch (Exception e) {
             throw new RuntimeException("Failed to store historical data for " + tableName, e);
         }
     }
+
+    private record TableVersion(String version, String previousVersion) {
+    }
+
+    private record RawRow(int rowIndex, SheetRow cells) {
+    }
+
+    /**
+     * A worker's validated rows and their errors; {@code castErrors} and {@code timeoutErrors} of them are cast
+     * failures and pattern timeouts, the rest pattern and enum errors.
+     */
+    private record ValidatedBatch(ColumnarRowBatch rows, int[] rowIndexes, List<ValidationError> errors,
+                                  int castErrors, int timeoutErrors) {
+    }
 }
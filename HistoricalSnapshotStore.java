@@ -0,0 +1,480 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.RuleappHistoricalDataEntity;
+import com.example.demo.repository.RuleappHistoricalDataRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores and reads version snapshots in {@code RuleappHistoricalDataEntity}.
+ * <p>
+ * A snapshot is a manifest row (version {@code "v.s"}) plus chunk rows ({@code "v.s#1"}, {@code "v.s#2"}, ...).
+ * The chunks hold one gzip-compressed JSON document {@code {"upserts":[...],"deletes":[...]}}, written through a
+ * streaming generator and split into base64-encoded pieces of {@code upload.history.chunk-size-bytes}. Audit columns
+ * are constant per upload and live in the manifest. A snapshot is either full ({@code base == null}) or a delta
+ * against the previous version by key columns; every {@code upload.history.full-snapshot-interval} versions a full
+ * snapshot is written again to bound reconstruction chains. Rows written before this format (a plain JSON array
+ * in the manifest row itself) are still readable.
+ * <p>
+ * Alongside the payload every keyed version stores a hash index ({@code "v.s#h1"}, ...): per row its key, a 64-bit
+ * hash of its values and its key values. The next upload diffs its batch against that index rather than
+ * rebuilding the previous version's rows; a version without an index is followed by a full snapshot.
+ */
+@Service
+public class HistoricalSnapshotStore {
+
+    static final String FORMAT = "chunked-v1";
+    static final String CHUNK_SEPARATOR = "#";
+    private static final String HASH_INDEX_PREFIX = "h";
+    private static final Set<String> AUDIT_COLUMNS = Set.of("created_by", "created_date");
+    private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<>() {};
+    private static final TypeReference<List<Object>> KEY_TYPE = new TypeReference<>() {};
+
+    private final RuleappHistoricalDataRepository ruleappHistoricalDataRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int chunkSizeBytes;
+    private final int fullSnapshotInterval;
+
+    public HistoricalSnapshotStore(RuleappHistoricalDataRepository ruleappHistoricalDataRepository,
+                                   EntityManager entityManager,
+                                   @Value("${upload.history.chunk-size-bytes:1048576}") int chunkSizeBytes,
+                                   @Value("${upload.history.full-snapshot-interval:10}") int fullSnapshotInterval) {
+        this.ruleappHistoricalDataRepository = ruleappHistoricalDataRepository;
+        this.entityManager = entityManager;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.fullSnapshotInterval = fullSnapshotInterval;
+
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * Writes the snapshot of {@code version}, as a delta against {@code previousVersion} when that version has a
+     * hash index with the same key columns and the delta chain is still shorter than the full-snapshot interval.
+     */
+    public void write(String tableName, String version, String previousVersion, List<String> keyColumns,
+                      ColumnarRowBatch data, String createdBy) throws IOException {
+        LocalDateTime createdDate = LocalDateTime.now();
+
+        Map<String, IndexedRow> previous = null;
+        int depth = 0;
+        SnapshotManifest base = previousVersion == null ? null : findManifest(tableName, previousVersion).orElse(null);
+        if (base != null && !keyColumns.isEmpty() && base.depth() + 1 < fullSnapshotInterval
+                && base.hashChunks() > 0 && keyColumns.equals(base.keyColumns())) {
+            previous = readHashIndex(tableName, previousVersion, base.hashChunks());
+            depth = base.depth() + 1;
+        }
+
+        int[] keyIndexes = keyColumns.stream().mapToInt(data::columnIndex).toArray();
+        boolean keyed = keyIndexes.length > 0;
+        ChunkOutputStream chunks = new ChunkOutputStream(tableName, version + CHUNK_SEPARATOR, createdBy, createdDate);
+        ChunkOutputStream hashChunks = new ChunkOutputStream(tableName, version + CHUNK_SEPARATOR + HASH_INDEX_PREFIX,
+                createdBy, createdDate);
+        long upserts = 0, deletes = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(new GZIPOutputStream(chunks, 65536));
+             JsonGenerator index = keyed ? objectMapper.getFactory().createGenerator(new GZIPOutputStream(hashChunks, 65536)) : null) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("upserts");
+            if (keyed) index.writeStartArray();
+            for (int row = 0; row < data.size(); row++) {
+                if (keyed) {
+                    String key = buildKey(data, row, keyIndexes);
+                    long hash = rowHash(data, row);
+                    writeIndexEntry(index, data, row, key, hash, keyIndexes);
+                    if (previous != null) {
+                        IndexedRow before = previous.remove(key);
+                        if (before != null && before.hash() == hash) continue;
+                    }
+                }
+                generator.writeStartObject();
+                for (int c = 0; c < data.columnCount(); c++) {
+                    if (AUDIT_COLUMNS.contains(data.columnName(c))) continue;
+                    generator.writeFieldName(data.columnName(c));
+                    writeValue(generator, data, row, c);
+                }
+                generator.writeEndObject();
+                upserts++;
+            }
+            generator.writeEndArray();
+            if (keyed) index.writeEndArray();
+
+            generator.writeArrayFieldStart("deletes");
+            if (previous != null) {
+                for (IndexedRow removed : previous.values()) {
+                    generator.writeObject(removed.keyValues());
+                    deletes++;
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        Map<String, Object> constants = new LinkedHashMap<>();
+        AUDIT_COLUMNS.stream().filter(data.getConstants()::containsKey).sorted()
+                .forEach(col -> constants.put(col, data.getConstants().get(col)));
+        SnapshotManifest manifest = new SnapshotManifest(FORMAT, "gzip", chunks.count(), hashChunks.count(), data.size(),
+                upserts, deletes, depth == 0 ? null : previousVersion, depth, keyColumns, constants);
+        save(tableName, version, objectMapper.writeValueAsString(manifest), createdBy, createdDate);
+    }
+
+    /**
+     * Streams the rows of {@code version} in their stored form. Full snapshots are decoded chunk by chunk without
+     * materializing the version; delta snapshots are reconstructed from their base chain first.
+     */
+    public void forEachRow(String tableName, String version, Consumer<Map<String, Object>> consumer) throws IOException {
+        forEachStoredRow(tableName, version, consumer);
+    }
+
+    Optional<SnapshotManifest> findManifest(String tableName, String version) throws IOException {
+        Optional<RuleappHistoricalDataEntity> entity = findRecord(tableName, version);
+        if (entity.isEmpty()) return Optional.empty();
+        String record = entity.get().getRecord();
+        entityManager.detach(entity.get());
+        if (record == null || !record.stripLeading().startsWith("{")) {
+            return Optional.of(SnapshotManifest.legacy());
+        }
+        return Optional.of(objectMapper.readValue(record, SnapshotManifest.class));
+    }
+
+    private void forEachStoredRow(String tableName, String version, Consumer<Map<String, Object>> consumer) throws IOException {
+        RuleappHistoricalDataEntity entity = findRecord(tableName, version)
+                .orElseThrow(() -> new NoSuchElementException("No historical data for " + tableName + " " + version));
+        String record = entity.getRecord();
+        entityManager.detach(entity);
+
+        if (record == null || !record.stripLeading().startsWith("{")) {
+            forEachLegacyRow(record, consumer);
+            return;
+        }
+
+        SnapshotManifest manifest = objectMapper.readValue(record, SnapshotManifest.class);
+        if (manifest.base() == null) {
+            readPayload(tableName, version, manifest, row -> {
+                row.putAll(manifest.constants());
+                consumer.accept(row);
+            }, keyValues -> {
+            });
+            return;
+        }
+
+        List<String> keyColumns = manifest.keyColumns();
+        Map<String, Map<String, Object>> rows = new LinkedHashMap<>();
+        forEachStoredRow(tableName, manifest.base(), row -> {
+            AUDIT_COLUMNS.forEach(row::remove);
+            rows.put(buildKey(row, keyColumns), row);
+        });
+        readPayload(tableName, version, manifest,
+                row -> rows.put(buildKey(row, keyColumns), row),
+                keyValues -> rows.remove(keyValues.stream().map(v -> Objects.toString(v, "")).collect(Collectors.joining("|"))));
+        for (Map<String, Object> row : rows.values()) {
+            row.putAll(manifest.constants());
+            consumer.accept(row);
+        }
+    }
+
+    private void forEachLegacyRow(String record, Consumer<Map<String, Object>> consumer) throws IOException {
+        if (record == null) return;
+        try (JsonParser parser = objectMapper.getFactory().createParser(record)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) return;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(objectMapper.readValue(parser, ROW_TYPE));
+            }
+        }
+    }
+
+    private void readPayload(String tableName, String version, SnapshotManifest manifest,
+                             Consumer<Map<String, Object>> upserts, Consumer<List<Object>> deletes) throws IOException {
+        try (InputStream payload = new GZIPInputStream(new SequenceInputStream(
+                new ChunkEnumeration(tableName, version + CHUNK_SEPARATOR, manifest.chunks())), 65536);
+             JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Corrupt historical snapshot " + tableName + " " + version);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if ("upserts".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) upserts.accept(objectMapper.readValue(parser, ROW_TYPE));
+                } else if ("deletes".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_ARRAY) deletes.accept(objectMapper.readValue(parser, KEY_TYPE));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * The version's hash index, by key. Holds a key string, a hash and the key values per row, not the rows.
+     */
+    private Map<String, IndexedRow> readHashIndex(String tableName, String version, int chunks) throws IOException {
+        Map<String, IndexedRow> rows = new HashMap<>();
+        try (InputStream payload = new GZIPInputStream(new SequenceInputStream(
+                new ChunkEnumeration(tableName, version + CHUNK_SEPARATOR + HASH_INDEX_PREFIX, chunks)), 65536);
+             JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Corrupt hash index " + tableName + " " + version);
+            }
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                String key = parser.getText();
+                parser.nextToken();
+                long hash = parser.getLongValue();
+                parser.nextToken();
+                List<Object> keyValues = objectMapper.readValue(parser, KEY_TYPE);
+                parser.nextToken();
+                rows.put(key, new IndexedRow(hash, keyValues));
+            }
+        }
+        return rows;
+    }
+
+    private static void writeIndexEntry(JsonGenerator index, ColumnarRowBatch data, int row, String key, long hash,
+                                        int[] keyIndexes) throws IOException {
+        index.writeStartArray();
+        index.writeString(key);
+        index.writeNumber(hash);
+        index.writeStartArray();
+        for (int c : keyIndexes) {
+            if (c < 0) index.writeNull();
+            else writeValue(index, data, row, c);
+        }
+        index.writeEndArray();
+        index.writeEndArray();
+    }
+
+    /**
+     * 64-bit hash of a row's non-audit columns: name, type and typed value of each. Equal rows hash equal across
+     * uploads; a change going unnoticed would take a 64-bit collision.
+     */
+    static long rowHash(ColumnarRowBatch data, int row) {
+        long hash = 0x84222325CBF29CE4L;
+        for (int c = 0; c < data.columnCount(); c++) {
+            if (AUDIT_COLUMNS.contains(data.columnName(c))) continue;
+            hash = mix(hash ^ stringHash(data.columnName(c)));
+            hash = mix(hash ^ data.columnType(c).ordinal());
+            hash = mix(hash ^ valueHash(data, row, c));
+        }
+        return hash;
+    }
+
+    private static long valueHash(ColumnarRowBatch data, int row, int column) {
+        if (data.isNull(row, column)) return 0x9E3779B97F4A7C15L;
+        return switch (data.columnType(column)) {
+            case INT -> data.getInt(row, column);
+            case LONG -> data.getLong(row, column);
+            case DOUBLE -> Double.doubleToLongBits(data.getDouble(row, column));
+            case BOOLEAN -> data.getBoolean(row, column) ? 1 : 2;
+            case STRING -> stringHash(data.getString(row, column));
+            case DATE -> data.getDate(row, column).toEpochDay();
+            case TIMESTAMP -> stringHash(data.getTimestamp(row, column).toString());
+            case DECIMAL -> stringHash(data.getDecimal(row, column).toString());
+        };
+    }
+
+    private static long stringHash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private Optional<RuleappHistoricalDataEntity> findRecord(String tableName, String version) {
+        return ruleappHistoricalDataRepository.findFirstByTableIdAndVersion(tableName, version);
+    }
+
+    private void save(String tableName, String version, String record, String createdBy, LocalDateTime createdDate) {
+        RuleappHistoricalDataEntity historical = new RuleappHistoricalDataEntity();
+        historical.setTableId(tableName);
+        historical.setVersion(version);
+        historical.setRecord(record);
+        historical.setCreatedBy(createdBy);
+        historical.setCreatedDate(createdDate);
+        ruleappHistoricalDataRepository.saveAndFlush(historical);
+        // keep large chunk strings out of the persistence context for the rest of the upload transaction
+        entityManager.detach(historical);
+    }
+
+    /**
+     * Matches key columns to the row's columns ignoring case, as {@link ColumnarRowBatch#columnIndex} does when the
+     * same key is built on the write side.
+     */
+    private String buildKey(Map<String, Object> row, List<String> keyColumns) {
+        return keyColumns.stream().map(k -> Objects.toString(valueIgnoringCase(row, k), "")).collect(Collectors.joining("|"));
+    }
+
+    private static Object valueIgnoringCase(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        if (value != null || row.containsKey(column)) return value;
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(column)) return entry.getValue();
+        }
+        return null;
+    }
+
+    private String buildKey(ColumnarRowBatch data, int row, int[] keyIndexes) {
+        return Arrays.stream(keyIndexes)
+                .mapToObj(c -> c < 0 ? "" : Objects.toString(data.get(row, c), ""))
+                .collect(Collectors.joining("|"));
+    }
+
+    private static void writeValue(JsonGenerator generator, ColumnarRowBatch data, int row, int column) throws IOException {
+        if (data.isNull(row, column)) {
+            generator.writeNull();
+            return;
+        }
+        switch (data.columnType(column)) {
+            case INT -> generator.writeNumber(data.getInt(row, column));
+            case LONG -> generator.writeNumber(data.getLong(row, column));
+            case DOUBLE -> generator.writeNumber(data.getDouble(row, column));
+            case BOOLEAN -> generator.writeBoolean(data.getBoolean(row, column));
+            case STRING -> generator.writeString(data.getString(row, column));
+            case DATE -> generator.writeObject(data.getDate(row, column));
+            case TIMESTAMP -> generator.writeObject(data.getTimestamp(row, column));
+            case DECIMAL -> generator.writeNumber(data.getDecimal(row, column));
+        }
+    }
+
+    private record IndexedRow(long hash, List<Object> keyValues) {
+    }
+
+    /**
+     * Manifest stored in the version's own record. {@code chunks == 0} with a null format marks a legacy snapshot,
+     * {@code hashChunks == 0} a version without a hash index.
+     */
+    record SnapshotManifest(String format, String codec, int chunks, int hashChunks, long rows, long upserts,
+                            long deletes, String base, int depth, List<String> keyColumns, Map<String, Object> constants) {
+
+        static SnapshotManifest legacy() {
+            return new SnapshotManifest(null, null, 0, 0, -1, -1, 0, null, 0, null, Map.of());
+        }
+
+        @Override
+        public Map<String, Object> constants() {
+            return constants == null ? Map.of() : constants;
+        }
+    }
+
+    /**
+     * Buffers compressed bytes and saves every full buffer as the next chunk row, {@code prefix} plus its number.
+     */
+    private final class ChunkOutputStream extends OutputStream {
+        private final String tableName;
+        private final String prefix;
+        private final String createdBy;
+        private final LocalDateTime createdDate;
+        private final byte[] buffer = new byte[chunkSizeBytes];
+        private int position;
+        private int count;
+        private boolean closed;
+
+        private ChunkOutputStream(String tableName, String prefix, String createdBy, LocalDateTime createdDate) {
+            this.tableName = tableName;
+            this.prefix = prefix;
+            this.createdBy = createdBy;
+            this.createdDate = createdDate;
+        }
+
+        @Override
+        public void write(int b) {
+            if (position == buffer.length) flushChunk();
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (position == buffer.length) flushChunk();
+                int n = Math.min(length, buffer.length - position);
+                System.arraycopy(bytes, offset, buffer, position, n);
+                position += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (position > 0) flushChunk();
+        }
+
+        int count() {
+            return count;
+        }
+
+        private void flushChunk() {
+            count++;
+            String encoded = Base64.getEncoder().encodeToString(Arrays.copyOf(buffer, position));
+            save(tableName, prefix + count, encoded, createdBy, createdDate);
+            position = 0;
+        }
+    }
+
+    /**
+     * Fetches and decodes chunk rows one at a time as the decompressor asks for them.
+     */
+    private final class ChunkEnumeration implements Enumeration<InputStream> {
+        private final String tableName;
+        private final String prefix;
+        private final int chunks;
+        private int next = 1;
+
+        private ChunkEnumeration(String tableName, String prefix, int chunks) {
+            this.tableName = tableName;
+            this.prefix = prefix;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return next <= chunks;
+        }
+
+        @Override
+        public InputStream nextElement() {
+            if (next > chunks) throw new NoSuchElementException();
+            String chunkVersion = prefix + next++;
+            RuleappHistoricalDataEntity entity = findRecord(tableName, chunkVersion)
+                    .orElseThrow(() -> new IllegalStateException("Missing historical chunk " + tableName + " " + chunkVersion));
+            byte[] bytes = Base64.getDecoder().decode(entity.getRecord());
+            entityManager.detach(entity);
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.LookUpTableEntity;
+import com.example.demo.repository.LookUpTableRepository;
+import com.example.demo.repository.RuleAppTableVersionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only, in-memory copies of lookup tables indexed by their {@code key_columns}, so rule lookups are hash
+ * probes instead of SQL round trips. Keys compare the way {@link DynamicTableService#mergeTable} matches rows:
+ * numbers by value, dates as ISO text, everything else by its string form; text keys are first cast by the form
+ * column's {@code cast_to}.
+ * <p>
+ * Copies share a budget of {@code upload.lookup-cache.max-bytes} (estimated) with the least recently used table
+ * evicted first; a table that alone exceeds it is looked up in the database instead. When an upload creates a new
+ * version the cached copy is rebuilt on a background thread after the upload commits and swapped in whole, readers
+ * keep the old copy until then. Versions created by other instances are picked up by comparing the current version at most once per
+ * {@code upload.lookup-cache.version-check-interval}.
+ */
+@Service
+public class LookupTableCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LookupTableCache.class);
+
+    private final LookUpTableRepository lookUpTableRepository;
+    private final RuleAppTableVersionRepository ruleAppTableVersionRepository;
+    private final UploadPlanCache uploadPlanCache;
+    private final DynamicTableService dynamicTableService;
+    private final TransactionTemplate readTransaction;
+    private final long maxBytes;
+    private final int fetchSize;
+    private final long versionCheckNanos;
+    private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refresher;
+    private long cachedBytes;
+
+    public LookupTableCache(LookUpTableRepository lookUpTableRepository,
+                            RuleAppTableVersionRepository ruleAppTableVersionRepository,
+                            UploadPlanCache uploadPlanCache,
+                            DynamicTableService dynamicTableService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${upload.lookup-cache.max-bytes:268435456}") long maxBytes,
+                            @Value("${upload.lookup-cache.fetch-size:1000}") int fetchSize,
+                            @Value("${upload.lookup-cache.version-check-interval:5s}") Duration versionCheckInterval) {
+        this.lookUpTableRepository = lookUpTableRepository;
+        this.ruleAppTableVersionRepository = ruleAppTableVersionRepository;
+        this.uploadPlanCache = uploadPlanCache;
+        this.dynamicTableService = dynamicTableService;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.maxBytes = maxBytes;
+        this.fetchSize = fetchSize;
+        this.versionCheckNanos = versionCheckInterval.toNanos();
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lookup-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * The row whose key columns hold {@code keyValues}, given in {@code key_columns} order.
+     */
+    public Optional<Map<String, Object>> get(String tableName, List<?> keyValues) {
+        return Optional.ofNullable(getAll(tableName, List.of(keyValues)).get(0));
+    }
+
+    /**
+     * One entry per key, in the same order, null where the table has no such row. All keys are answered from the
+     * same version of the table.
+     */
+    public List<Map<String, Object>> getAll(String tableName, List<? extends List<?>> keys) {
+        Snapshot snapshot = snapshot(tableName);
+        List<Map<String, Object>> rows = new ArrayList<>(keys.size());
+        for (List<?> keyValues : keys) {
+            Object[] typedKey = snapshot.typedKey(keyValues);
+            Object[] values;
+            if (snapshot.rows != null) {
+                values = snapshot.rows.get(normalizedKey(typedKey));
+            } else {
+                List<Object[]> found = dynamicTableService.findRows(snapshot.plan, snapshot.columns, snapshot.plan.getKeyColumns(), typedKey);
+                values = found.isEmpty() ? null : found.get(0);
+            }
+            rows.add(values == null ? null : snapshot.toMap(values));
+        }
+        return rows;
+    }
+
+    /**
+     * Queues a rebuild of the cached copy of {@code tableName}, if there is one, once the current transaction commits
+     * (or right away outside one), so the upload does not wait for the table to be read back. Called when an upload
+     * creates a new version.
+     */
+    public void versionCreated(String tableName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshLater(tableName);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refreshLater(tableName);
+            }
+        });
+    }
+
+    public void invalidate(String tableName) {
+        synchronized (snapshots) {
+            Snapshot removed = snapshots.remove(tableName);
+            if (removed != null) cachedBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * A table already queued is not queued again; the queued rebuild reads the latest version.
+     */
+    private void refreshLater(String tableName) {
+        if (!pendingRefreshes.add(tableName)) return;
+        try {
+            refresher.execute(() -> {
+                pendingRefreshes.remove(tableName);
+                refresh(tableName);
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRefreshes.remove(tableName);
+            invalidate(tableName);
+        }
+    }
+
+    private void refresh(String tableName) {
+        Snapshot current;
+        synchronized (snapshots) {
+            current = snapshots.get(tableName);
+        }
+        if (current == null) return;
+        try {
+            load(tableName, current);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh cached {}, dropping it: {}", tableName, e.getMessage());
+            invalidate(tableName);
+        }
+    }
+
+    private Snapshot snapshot(String tableName) {
+        Snapshot current;
+        synchronized (snapshots) {
+            current = snapshots.get(tableName);
+        }
+        if (current != null) {
+            if (!current.claimVersionCheck(versionCheckNanos)) return current;
+            if (Objects.equals(current.version, currentVersion(tableName))) return current;
+        }
+        return load(tableName, current);
+    }
+
+    /**
+     * Builds a new copy unless another thread replaced {@code stale} while this one waited for the table's lock.
+     */
+    private Snapshot load(String tableName, Snapshot stale) {
+        synchronized (loadLocks.computeIfAbsent(tableName, name -> new Object())) {
+            synchronized (snapshots) {
+                Snapshot current = snapshots.get(tableName);
+                if (current != null && current != stale) return current;
+            }
+
+            LookUpTableEntity lookUpTable = lookUpTableRepository.findByTableName(tableName)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Table not found: " + tableName));
+            UploadPlan plan = uploadPlanCache.getPlan(tableName, lookUpTable);
+            long started = System.nanoTime();
+            Snapshot snapshot = readTransaction.execute(status -> read(tableName, plan));
+            String version = snapshot.version;
+
+            synchronized (snapshots) {
+                Snapshot previous = snapshots.put(tableName, snapshot);
+                cachedBytes += snapshot.bytes - (previous == null ? 0 : previous.bytes);
+                Iterator<Snapshot> eldest = snapshots.values().iterator();
+                while (cachedBytes > maxBytes && eldest.hasNext()) {
+                    Snapshot evicted = eldest.next();
+                    if (evicted == snapshot) continue;
+                    cachedBytes -= evicted.bytes;
+                    eldest.remove();
+                }
+            }
+            if (snapshot.rows != null) {
+                log.info("Cached {} version {}: {} rows, ~{} bytes in {} ms", tableName, version, snapshot.rows.size(),
+                        snapshot.bytes, Duration.ofNanos(System.nanoTime() - started).toMillis());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Reads the version and the rows in one read-only, repeatable-read transaction, so they come from the same
+     * snapshot of the database, and so PostgreSQL streams the rows through a cursor instead of loading the whole
+     * table before the budget is checked.
+     */
+    private Snapshot read(String tableName, UploadPlan plan) {
+        Snapshot snapshot = new Snapshot(plan, currentVersion(tableName));
+        try {
+            dynamicTableService.forEachRow(plan, snapshot.columns, fetchSize, snapshot::add);
+        } catch (BudgetExceeded e) {
+            snapshot.dropRows();
+            log.info("{} does not fit the lookup cache budget, looking it up in the database", tableName);
+        }
+        return snapshot;
+    }
+
+    private String currentVersion(String tableName) {
+        return ruleAppTableVersionRepository.findFirstByTableIdAndValidityEndIsNullOrderByValidityStartDesc(tableName)
+                .map(v -> v.getVersion() + "." + v.getSubVersion())
+                .orElse(null);
+    }
+
+    private static List<String> normalizedKey(Object[] keyValues) {
+        String[] key = new String[keyValues.length];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = DynamicTableService.normalize(keyValues[i]);
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Rough retained size of a value read back from JDBC, for the cache budget.
+     */
+    private static long estimateBytes(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String text) return 48 + text.length();
+        if (value instanceof BigDecimal) return 64;
+        if (value instanceof Number || value instanceof Boolean) return 16;
+        return 48;
+    }
+
+    /**
+     * One version of a table, or only its plan and version when the rows did not fit the budget.
+     */
+    private final class Snapshot {
+        private final UploadPlan plan;
+        private final String version;
+        private final List<String> columns;
+        private final int[] keyIndexes;
+        private final UploadPlan.PlanColumn[] keyCasts;
+        private final AtomicLong checkedAt = new AtomicLong(System.nanoTime());
+        private Map<List<String>, Object[]> rows = new HashMap<>();
+        private long bytes;
+
+        private Snapshot(UploadPlan plan, String version) {
+            this.plan = plan;
+            this.version = version;
+            List<String> columns = new ArrayList<>(plan.getColumns().stream().map(UploadPlan.PlanColumn::getColumnName).toList());
+            List<String> keyColumns = plan.getKeyColumns();
+            for (String key : keyColumns) {
+                if (!columns.contains(key)) columns.add(key);
+            }
+            this.columns = List.copyOf(columns);
+            this.keyIndexes = keyColumns.stream().mapToInt(columns::indexOf).toArray();
+            this.keyCasts = keyColumns.stream()
+                    .map(key -> plan.getColumns().stream().filter(c -> c.getColumnName().equals(key)).findFirst().orElse(null))
+                    .toArray(UploadPlan.PlanColumn[]::new);
+        }
+
+        private void add(Object[] values) {
+            Object[] key = new Object[keyIndexes.length];
+            for (int i = 0; i < key.length; i++) key[i] = values[keyIndexes[i]];
+            List<String> normalized = normalizedKey(key);
+
+            long rowBytes = 96 + 8L * values.length;
+            for (Object value : values) rowBytes += estimateBytes(value);
+            for (String part : normalized) rowBytes += estimateBytes(part);
+            bytes += rowBytes;
+            if (bytes > maxBytes) throw BudgetExceeded.INSTANCE;
+            rows.putIfAbsent(normalized, values);
+        }
+
+        private void dropRows() {
+            rows = null;
+            bytes = 0;
+        }
+
+        /**
+         * Key values typed like the stored ones: text is cast by the key column's {@code cast_to}.
+         */
+        private Object[] typedKey(List<?> keyValues) {
+            if (keyValues == null || keyValues.size() != keyCasts.length) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Expected " + keyCasts.length + " key values for " + plan.getKeyColumns());
+            }
+            Object[] key = new Object[keyCasts.length];
+            for (int i = 0; i < key.length; i++) {
+                Object value = keyValues.get(i);
+                key[i] = value instanceof String text && keyCasts[i] != null ? keyCasts[i].cast(text) : value;
+            }
+            return key;
+        }
+
+        private Map<String, Object> toMap(Object[] values) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < values.length; i++) row.put(columns.get(i), values[i]);
+            return row;
+        }
+
+        /**
+         * True for the one caller that should compare the version now, false while the last check is recent.
+         */
+        private boolean claimVersionCheck(long intervalNanos) {
+            long last = checkedAt.get();
+            long now = System.nanoTime();
+            return now - last >= intervalNanos && checkedAt.compareAndSet(last, now);
+        }
+    }
+
+    private static final class BudgetExceeded extends RuntimeException {
+        private static final BudgetExceeded INSTANCE = new BudgetExceeded();
+
+        private BudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
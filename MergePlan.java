@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import java.util.*;
+
+/**
+ * Sorts the live rows of a MERGE upload against the incoming batch by normalized key: live rows whose key the upload
+ * lacks are deleted, rows whose values differ are updated and incoming rows with a new key are inserted. A key the
+ * live table holds more than once is deleted once and, if the upload has it, inserted again. Live rows are fed in
+ * one at a time while the table is scanned, so only their keys are kept.
+ */
+final class MergePlan {
+
+    private final ColumnarRowBatch data;
+    private final int[] valueIndexes;
+    private final Map<List<String>, Integer> incoming = new LinkedHashMap<>();
+    private final Set<List<String>> matched = new HashSet<>();
+    private final Set<List<String>> duplicated = new HashSet<>();
+    private final Map<List<String>, Integer> updates = new LinkedHashMap<>();
+    private final Map<List<String>, Object[]> deletes = new LinkedHashMap<>();
+
+    /**
+     * {@code keyIndexes} and {@code valueIndexes} are columns of {@code data}, -1 for a column the form does not fill.
+     */
+    MergePlan(ColumnarRowBatch data, int[] keyIndexes, int[] valueIndexes) {
+        this.data = data;
+        this.valueIndexes = valueIndexes.clone();
+        for (int row = 0; row < data.size(); row++) {
+            Object[] keyValues = new Object[keyIndexes.length];
+            for (int i = 0; i < keyIndexes.length; i++) keyValues[i] = value(row, keyIndexes[i]);
+            incoming.put(normalizedKey(keyValues), row);
+        }
+    }
+
+    /**
+     * Classifies one live row, given its key values and its values for the value columns in order.
+     */
+    void addLiveRow(Object[] keyValues, Object[] liveValues) {
+        List<String> key = normalizedKey(keyValues);
+        if (!matched.add(key)) {
+            // the table holds this key more than once: replace all of its rows
+            duplicated.add(key);
+            updates.remove(key);
+            deletes.putIfAbsent(key, keyValues);
+            return;
+        }
+        Integer row = incoming.get(key);
+        if (row == null) {
+            deletes.put(key, keyValues);
+            return;
+        }
+        for (int i = 0; i < valueIndexes.length; i++) {
+            if (!Objects.equals(DynamicTableService.normalize(liveValues[i]),
+                    DynamicTableService.normalize(value(row, valueIndexes[i])))) {
+                updates.put(key, row);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Key values to delete, each key once.
+     */
+    List<Object[]> deletes() {
+        return new ArrayList<>(deletes.values());
+    }
+
+    /**
+     * Batch rows to apply as updates.
+     */
+    Collection<Integer> updates() {
+        return updates.values();
+    }
+
+    /**
+     * Batch rows to insert: new keys, and keys whose duplicated live rows are deleted.
+     */
+    int[] inserts() {
+        return incoming.entrySet().stream()
+                .filter(entry -> !matched.contains(entry.getKey()) || duplicated.contains(entry.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .toArray();
+    }
+
+    /**
+     * Keys removed from the table, not counting duplicated keys the upload writes back.
+     */
+    int deleted() {
+        return deletes.size() - (int) duplicated.stream().filter(incoming::containsKey).count();
+    }
+
+    /**
+     * Live keys left as they are.
+     */
+    int unchanged() {
+        return matched.size() - deletes.size() - updates.size();
+    }
+
+    private Object value(int row, int column) {
+        return column < 0 ? null : data.get(row, column);
+    }
+
+    private static List<String> normalizedKey(Object[] values) {
+        return Arrays.stream(values).map(DynamicTableService::normalize).toList();
+    }
+}
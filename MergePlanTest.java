@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergePlanTest {
+
+    private static final int[] KEY = {0};
+    private static final int[] VALUES = {1};
+
+    @Test
+    void classifiesInsertsUpdatesDeletesAndUnchanged() {
+        MergePlan merge = new MergePlan(batch("a", "1", "b", "2", "c", "3"), KEY, VALUES);
+        merge.addLiveRow(keys("a"), values("1"));
+        merge.addLiveRow(keys("b"), values("changed"));
+        merge.addLiveRow(keys("gone"), values("9"));
+
+        assertArrayEquals(new int[]{2}, merge.inserts());
+        assertEquals(List.of(1), List.copyOf(merge.updates()));
+        assertEquals(1, merge.deletes().size());
+        assertEquals("gone", merge.deletes().get(0)[0]);
+        assertEquals(1, merge.deleted());
+        assertEquals(1, merge.unchanged());
+    }
+
+    @Test
+    void comparesNumbersByValue() {
+        ColumnarRowBatch data = new ColumnarRowBatch(List.of("code", "amount"),
+                List.of(ColumnarRowBatch.ColumnType.STRING, ColumnarRowBatch.ColumnType.DOUBLE));
+        data.appendString(0, "a");
+        data.appendDouble(1, 1.5);
+        data.endRow();
+
+        MergePlan merge = new MergePlan(data, KEY, VALUES);
+        merge.addLiveRow(keys("a"), new Object[]{new BigDecimal("1.50")});
+
+        assertTrue(merge.updates().isEmpty());
+        assertEquals(1, merge.unchanged());
+    }
+
+    @Test
+    void duplicatedLiveKeyMissingFromUploadIsDeletedOnce() {
+        MergePlan merge = new MergePlan(batch("a", "1"), KEY, VALUES);
+        merge.addLiveRow(keys("a"), values("1"));
+        merge.addLiveRow(keys("dup"), values("1"));
+        merge.addLiveRow(keys("dup"), values("2"));
+        merge.addLiveRow(keys("dup"), values("3"));
+
+        assertEquals(1, merge.deletes().size());
+        assertEquals(1, merge.deleted());
+        assertEquals(1, merge.unchanged());
+        assertEquals(0, merge.inserts().length);
+    }
+
+    @Test
+    void duplicatedLiveKeyInUploadIsRewritten() {
+        MergePlan merge = new MergePlan(batch("dup", "new"), KEY, VALUES);
+        merge.addLiveRow(keys("dup"), values("old"));
+        merge.addLiveRow(keys("dup"), values("older"));
+
+        assertEquals(1, merge.deletes().size());
+        assertArrayEquals(new int[]{0}, merge.inserts());
+        assertTrue(merge.updates().isEmpty());
+        assertEquals(0, merge.deleted());
+        assertEquals(0, merge.unchanged());
+    }
+
+    private static ColumnarRowBatch batch(String... keyValuePairs) {
+        ColumnarRowBatch data = new ColumnarRowBatch(List.of("code", "label"),
+                List.of(ColumnarRowBatch.ColumnType.STRING, ColumnarRowBatch.ColumnType.STRING));
+        for (int i = 0; i < keyValuePairs.length; i += 2) {
+            data.appendString(0, keyValuePairs[i]);
+            data.appendString(1, keyValuePairs[i + 1]);
+            data.endRow();
+        }
+        return data;
+    }
+
+    private static Object[] keys(String key) {
+        return new Object[]{key};
+    }
+
+    private static Object[] values(String value) {
+        return new Object[]{value};
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+@Data
+public class MergeResult {
+    private int inserted;
+    private int updated;
+    private int deleted;
+    private int unchanged;
+
+    public MergeResult(int inserted, int updated, int deleted, int unchanged) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deleted = deleted;
+        this.unchanged = unchanged;
+    }
+}
@@ -0,0 +1,508 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Syntax tree for the subset of {@link java.util.regex.Pattern} syntax that bulk upload forms use: literals,
+ * character classes (ranges, {@code \d \w \s}, negation, {@code .}), groups, alternation and greedy or lazy
+ * quantifiers, with {@code ^}/{@code $} only around top-level branches. {@link #parse} returns null for anything
+ * else (flags, lookaround, back references, possessive quantifiers, class intersections, ...).
+ * <p>
+ * The tree is only ever used to pick a faster matcher for the same language and to spot nested quantifiers that
+ * make the backtracking engine exponential; the pattern itself is always compiled by {@code Pattern} first.
+ */
+final class RegexShape {
+
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    sealed interface Node permits CharClass, Sequence, Alternation, Repeat {
+    }
+
+    record CharClass(CharSet set) implements Node {
+    }
+
+    record Sequence(List<Node> items) implements Node {
+    }
+
+    record Alternation(List<Node> branches) implements Node {
+    }
+
+    record Repeat(Node node, int min, int max) implements Node {
+    }
+
+    private RegexShape() {
+    }
+
+    static Node parse(String regex) {
+        try {
+            Parser parser = new Parser(regex);
+            Node node = parser.alternation(0);
+            if (parser.pos != regex.length()) return null;
+            return node;
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    /**
+     * Describes why the pattern can backtrack exponentially, null if no such construct was found. Flags a
+     * repeated body that can split the same input into iterations in more than one way: an unbounded or
+     * variable-length repeat whose neighbours in the body are optional or can start with the same characters
+     * ({@code (a+)+}, {@code (\w+\s?)*}, {@code (\d{1,3},?)+}), and alternatives with a common first character
+     * under a repeat ({@code (a|ab)*}).
+     */
+    static String backtrackingRisk(Node node) {
+        if (node instanceof Repeat repeat) {
+            if (repeat.max() > 1) {
+                String risk = ambiguousBody(repeat.node());
+                if (risk != null) return risk;
+            }
+            return backtrackingRisk(repeat.node());
+        }
+        List<Node> children = node instanceof Sequence sequence ? sequence.items()
+                : node instanceof Alternation alternation ? alternation.branches() : List.of();
+        for (Node child : children) {
+            String risk = backtrackingRisk(child);
+            if (risk != null) return risk;
+        }
+        return null;
+    }
+
+    private static String ambiguousBody(Node body) {
+        if (body instanceof Alternation alternation) {
+            List<Node> branches = alternation.branches();
+            for (int i = 0; i < branches.size(); i++) {
+                String risk = ambiguousBody(branches.get(i));
+                if (risk != null) return risk;
+                for (int j = i + 1; j < branches.size(); j++) {
+                    if (firstChars(branches.get(i)).intersects(firstChars(branches.get(j)))) {
+                        return "repeated alternatives start with the same characters";
+                    }
+                }
+            }
+            return null;
+        }
+        List<Node> items = body instanceof Sequence sequence ? sequence.items() : List.of(body);
+        for (Node item : items) {
+            if (!(item instanceof Repeat inner) || (inner.max() != UNBOUNDED && (inner.max() <= 1 || inner.max() == inner.min()))) {
+                continue;
+            }
+            CharSet innerChars = firstChars(inner);
+            boolean anchored = false;
+            for (Node other : items) {
+                if (other == item || nullable(other)) continue;
+                if (firstChars(other).intersects(innerChars)) return "nested quantifiers can match the same input";
+                anchored = true;
+            }
+            if (!anchored) return "nested quantifiers can match the same input";
+        }
+        return null;
+    }
+
+    static boolean nullable(Node node) {
+        if (node instanceof Sequence s) return s.items().stream().allMatch(RegexShape::nullable);
+        if (node instanceof Alternation a) return a.branches().stream().anyMatch(RegexShape::nullable);
+        if (node instanceof Repeat r) return r.min() == 0 || nullable(r.node());
+        return false;
+    }
+
+    /**
+     * Characters a match of {@code node} can start with, over-approximated for negated classes.
+     */
+    static CharSet firstChars(Node node) {
+        CharSet.Builder builder = new CharSet.Builder();
+        collectFirstChars(node, builder);
+        return builder.build(false);
+    }
+
+    private static void collectFirstChars(Node node, CharSet.Builder builder) {
+        if (node instanceof CharClass c) {
+            builder.addAll(c.set());
+        } else if (node instanceof Alternation a) {
+            a.branches().forEach(branch -> collectFirstChars(branch, builder));
+        } else if (node instanceof Repeat r) {
+            collectFirstChars(r.node(), builder);
+        } else if (node instanceof Sequence s) {
+            for (Node item : s.items()) {
+                collectFirstChars(item, builder);
+                if (!nullable(item)) break;
+            }
+        }
+    }
+
+    /**
+     * Every string the node matches, or null if there are more than {@code limit} (or infinitely many).
+     */
+    static Set<String> expand(Node node, int limit) {
+        Set<String> strings = new LinkedHashSet<>();
+        return expandInto(node, limit, strings) ? strings : null;
+    }
+
+    private static boolean expandInto(Node node, int limit, Set<String> out) {
+        List<String> strings = expandList(node, limit);
+        if (strings == null) return false;
+        out.addAll(strings);
+        return out.size() <= limit;
+    }
+
+    private static List<String> expandList(Node node, int limit) {
+        if (node instanceof CharClass c) {
+            return c.set().chars(limit);
+        }
+        if (node instanceof Alternation a) {
+            List<String> strings = new ArrayList<>();
+            for (Node branch : a.branches()) {
+                List<String> expanded = expandList(branch, limit);
+                if (expanded == null || strings.size() + expanded.size() > limit) return null;
+                strings.addAll(expanded);
+            }
+            return strings;
+        }
+        if (node instanceof Sequence s) {
+            List<String> strings = List.of("");
+            for (Node item : s.items()) {
+                strings = product(strings, expandList(item, limit), limit);
+                if (strings == null) return null;
+            }
+            return strings;
+        }
+        Repeat r = (Repeat) node;
+        if (r.max() == UNBOUNDED) return null;
+        List<String> body = expandList(r.node(), limit);
+        if (body == null) return null;
+        List<String> strings = new ArrayList<>();
+        List<String> power = List.of("");
+        for (int k = 0; k <= r.max(); k++) {
+            if (k >= r.min()) {
+                if (strings.size() + power.size() > limit) return null;
+                strings.addAll(power);
+            }
+            if (k < r.max()) {
+                power = product(power, body, limit);
+                if (power == null) return null;
+            }
+        }
+        return strings;
+    }
+
+    private static List<String> product(List<String> prefixes, List<String> suffixes, int limit) {
+        if (suffixes == null || (long) prefixes.size() * suffixes.size() > limit) return null;
+        List<String> strings = new ArrayList<>(prefixes.size() * suffixes.size());
+        for (String prefix : prefixes) {
+            for (String suffix : suffixes) strings.add(prefix + suffix);
+        }
+        return strings;
+    }
+
+    /**
+     * An immutable set of chars: a bitmap for ASCII plus ranges above it, optionally negated.
+     */
+    static final class CharSet {
+        static final CharSet DIGITS = new Builder().addRange('0', '9').build(false);
+
+        private final long low;
+        private final long high;
+        private final char[] ranges;
+        private final boolean negated;
+
+        private CharSet(long low, long high, char[] ranges, boolean negated) {
+            this.low = low;
+            this.high = high;
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+
+        boolean contains(char c) {
+            boolean member;
+            if (c < 64) {
+                member = (low & (1L << c)) != 0;
+            } else if (c < 128) {
+                member = (high & (1L << (c - 64))) != 0;
+            } else {
+                member = false;
+                for (int i = 0; i < ranges.length; i += 2) {
+                    if (c >= ranges[i] && c <= ranges[i + 1]) {
+                        member = true;
+                        break;
+                    }
+                }
+            }
+            return member != negated;
+        }
+
+        /**
+         * Exact for ASCII; above it, conservatively true whenever both sets may contain such characters.
+         */
+        boolean intersects(CharSet other) {
+            if ((asciiLow() & other.asciiLow()) != 0 || (asciiHigh() & other.asciiHigh()) != 0) return true;
+            return (negated || ranges.length > 0) && (other.negated || other.ranges.length > 0);
+        }
+
+        boolean sameAs(CharSet other) {
+            return low == other.low && high == other.high && negated == other.negated
+                    && Arrays.equals(ranges, other.ranges);
+        }
+
+        /**
+         * The members as one-char strings, null if negated or larger than {@code limit}.
+         */
+        List<String> chars(int limit) {
+            if (negated) return null;
+            long size = Long.bitCount(low) + Long.bitCount(high);
+            for (int i = 0; i < ranges.length; i += 2) size += ranges[i + 1] - ranges[i] + 1;
+            if (size > limit) return null;
+            List<String> chars = new ArrayList<>((int) size);
+            for (char c = 0; c < 128; c++) {
+                if (contains(c)) chars.add(String.valueOf(c));
+            }
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int c = ranges[i]; c <= ranges[i + 1]; c++) chars.add(String.valueOf((char) c));
+            }
+            return chars;
+        }
+
+        private long asciiLow() {
+            return negated ? ~low : low;
+        }
+
+        private long asciiHigh() {
+            return negated ? ~high : high;
+        }
+
+        static final class Builder {
+            private long low;
+            private long high;
+            private final List<Character> ranges = new ArrayList<>();
+            private boolean any;
+
+            Builder add(char c) {
+                return addRange(c, c);
+            }
+
+            Builder addRange(char from, char to) {
+                for (char c = from; c <= to && c < 128; c++) {
+                    if (c < 64) low |= 1L << c;
+                    else high |= 1L << (c - 64);
+                }
+                if (to >= 128) {
+                    ranges.add((char) Math.max(from, 128));
+                    ranges.add(to);
+                }
+                return this;
+            }
+
+            /**
+             * Adds every member; a negated set makes this builder match everything.
+             */
+            Builder addAll(CharSet set) {
+                if (set.negated) {
+                    any = true;
+                    return this;
+                }
+                low |= set.low;
+                high |= set.high;
+                for (char c : set.ranges) ranges.add(c);
+                return this;
+            }
+
+            CharSet build(boolean negate) {
+                if (any) return new CharSet(0, 0, new char[0], !negate);
+                char[] array = new char[ranges.size()];
+                for (int i = 0; i < array.length; i++) array[i] = ranges.get(i);
+                return new CharSet(low, high, array, negate);
+            }
+        }
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Parser {
+        private static final CharSet DOT = new CharSet.Builder()
+                .add('\n').add('\r').add((char) 0x85).add((char) 0x2028).add((char) 0x2029).build(true);
+
+        private final String regex;
+        private int pos;
+
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        private Node alternation(int depth) {
+            List<Node> branches = new ArrayList<>();
+            branches.add(sequence(depth));
+            while (peek() == '|') {
+                pos++;
+                branches.add(sequence(depth));
+            }
+            return branches.size() == 1 ? branches.get(0) : new Alternation(branches);
+        }
+
+        private Node sequence(int depth) {
+            List<Node> items = new ArrayList<>();
+            if (depth == 0 && peek() == '^') pos++;
+            while (pos < regex.length() && peek() != ')' && peek() != '|') {
+                if (depth == 0 && peek() == '$') {
+                    pos++;
+                    if (pos < regex.length() && peek() != '|') throw Unsupported.INSTANCE;
+                    break;
+                }
+                items.add(quantifier(atom(depth)));
+            }
+            return items.size() == 1 ? items.get(0) : new Sequence(items);
+        }
+
+        private Node atom(int depth) {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(' -> {
+                    if (regex.startsWith("?:", pos)) pos += 2;
+                    else if (peek() == '?') throw Unsupported.INSTANCE;
+                    Node node = alternation(depth + 1);
+                    if (peek() != ')') throw Unsupported.INSTANCE;
+                    pos++;
+                    return node;
+                }
+                case '[' -> {
+                    return new CharClass(charClass());
+                }
+                case '.' -> {
+                    return new CharClass(DOT);
+                }
+                case '\\' -> {
+                    CharSet shorthand = shorthand(true);
+                    return new CharClass(shorthand != null ? shorthand : new CharSet.Builder().add(escapedChar()).build(false));
+                }
+                case '^', '$', '*', '+', '?', '{', '|', ')' -> throw Unsupported.INSTANCE;
+                default -> {
+                    if (Character.isSurrogate(c)) throw Unsupported.INSTANCE;
+                    return new CharClass(new CharSet.Builder().add(c).build(false));
+                }
+            }
+        }
+
+        private Node quantifier(Node atom) {
+            int min, max;
+            switch (peek()) {
+                case '?' -> {
+                    min = 0;
+                    max = 1;
+                    pos++;
+                }
+                case '*' -> {
+                    min = 0;
+                    max = UNBOUNDED;
+                    pos++;
+                }
+                case '+' -> {
+                    min = 1;
+                    max = UNBOUNDED;
+                    pos++;
+                }
+                case '{' -> {
+                    int close = regex.indexOf('}', pos);
+                    if (close < 0) throw Unsupported.INSTANCE;
+                    String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0]);
+                        max = bounds.length == 1 ? min : bounds[1].isEmpty() ? UNBOUNDED : Integer.parseInt(bounds[1]);
+                    } catch (NumberFormatException e) {
+                        throw Unsupported.INSTANCE;
+                    }
+                    if (bounds.length > 2 || max < min) throw Unsupported.INSTANCE;
+                    pos = close + 1;
+                }
+                default -> {
+                    return atom;
+                }
+            }
+            if (peek() == '+') throw Unsupported.INSTANCE;  // possessive
+            if (peek() == '?') pos++;                        // lazy: same language under a full match
+            if (peek() == '?' || peek() == '*' || peek() == '+' || peek() == '{') throw Unsupported.INSTANCE;
+            return min == 1 && max == 1 ? atom : new Repeat(atom, min, max);
+        }
+
+        private CharSet charClass() {
+            boolean negated = peek() == '^';
+            if (negated) pos++;
+            if (peek() == ']') throw Unsupported.INSTANCE;
+            CharSet.Builder builder = new CharSet.Builder();
+            while (true) {
+                if (pos >= regex.length()) throw Unsupported.INSTANCE;
+                char c = regex.charAt(pos++);
+                if (c == ']') break;
+                if (c == '[' || (c == '&' && peek() == '&') || Character.isSurrogate(c)) throw Unsupported.INSTANCE;
+                if (c == '\\') {
+                    CharSet shorthand = shorthand(false);
+                    if (shorthand != null) {
+                        builder.addAll(shorthand);
+                        continue;
+                    }
+                    c = escapedChar();
+                }
+                if (peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    char to = regex.charAt(pos++);
+                    if (to == '[' || Character.isSurrogate(to)) throw Unsupported.INSTANCE;
+                    if (to == '\\') {
+                        if (shorthand(false) != null) throw Unsupported.INSTANCE;
+                        to = escapedChar();
+                    }
+                    if (to < c) throw Unsupported.INSTANCE;
+                    builder.addRange(c, to);
+                } else {
+                    builder.add(c);
+                }
+            }
+            return builder.build(negated);
+        }
+
+        /**
+         * Consumes {@code \d \w \s} (and their negations outside classes) after a backslash, null if not one.
+         */
+        private CharSet shorthand(boolean allowNegated) {
+            char c = peek();
+            CharSet.Builder builder = new CharSet.Builder();
+            switch (Character.toLowerCase(c)) {
+                case 'd' -> builder.addRange('0', '9');
+                case 'w' -> builder.addRange('a', 'z').addRange('A', 'Z').addRange('0', '9').add('_');
+                case 's' -> builder.add(' ').add('\t').add('\n').add('\u000B').add('\f').add('\r');
+                default -> {
+                    return null;
+                }
+            }
+            boolean negated = Character.isUpperCase(c);
+            if (negated && !allowNegated) throw Unsupported.INSTANCE;
+            pos++;
+            return builder.build(negated);
+        }
+
+        private char escapedChar() {
+            if (pos >= regex.length()) throw Unsupported.INSTANCE;
+            char c = regex.charAt(pos++);
+            return switch (c) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 'f' -> '\f';
+                default -> {
+                    if (Character.isLetterOrDigit(c) || Character.isSurrogate(c)) throw Unsupported.INSTANCE;
+                    yield c;
+                }
+            };
+        }
+
+        private char peek() {
+            return pos < regex.length() ? regex.charAt(pos) : '\0';
+        }
+    }
+}
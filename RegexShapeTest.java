@@ -0,0 +1,46 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexShapeTest {
+
+    @Test
+    void unsupportedSyntaxIsNotParsed() {
+        assertNull(RegexShape.parse("(?=a)a"));
+        assertNull(RegexShape.parse("(a)\\1"));
+        assertNull(RegexShape.parse("(?i)abc"));
+        assertNull(RegexShape.parse("a++"));
+    }
+
+    @Test
+    void expandsSmallLanguages() {
+        assertEquals(Set.of("Y", "N"), RegexShape.expand(RegexShape.parse("^(Y|N)$"), 4096));
+        assertEquals(Set.of("ax", "bx", "x"), RegexShape.expand(RegexShape.parse("^[ab]?x$"), 4096));
+        assertEquals(100, RegexShape.expand(RegexShape.parse("^([1-9]|[1-9][0-9]|100)$"), 4096).size());
+    }
+
+    @Test
+    void doesNotExpandPastTheLimit() {
+        assertNull(RegexShape.expand(RegexShape.parse("^[0-9]{5}$"), 4096));
+        assertNull(RegexShape.expand(RegexShape.parse("^[A-Z]+$"), 4096));
+    }
+
+    @Test
+    void flagsNestedQuantifiersThatCanBacktrack() {
+        assertNotNull(RegexShape.backtrackingRisk(RegexShape.parse("^(a+)+$")));
+        assertNotNull(RegexShape.backtrackingRisk(RegexShape.parse("^(\\w+\\s?)*$")));
+        assertNotNull(RegexShape.backtrackingRisk(RegexShape.parse("^(\\d{1,3},?)+$")));
+        assertNotNull(RegexShape.backtrackingRisk(RegexShape.parse("^(a|ab)*$")));
+    }
+
+    @Test
+    void acceptsUnambiguousRepeats() {
+        assertNull(RegexShape.backtrackingRisk(RegexShape.parse("^[A-Z]{3}[0-9]{3}$")));
+        assertNull(RegexShape.backtrackingRisk(RegexShape.parse("^(ab)+$")));
+        assertNull(RegexShape.backtrackingRisk(RegexShape.parse("^(\\d{3},)*\\d{3}$")));
+    }
+}
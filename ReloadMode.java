@@ -0,0 +1,19 @@
+package com.example.demo.service;
+
+/**
+ * How an upload replaces the contents of a lookup table.
+ */
+public enum ReloadMode {
+    /**
+     * Empty the live table and insert into it inside the upload transaction: TRUNCATE on PostgreSQL, DELETE on
+     * databases where TRUNCATE would commit implicitly.
+     */
+    TRUNCATE,
+    /**
+     * Load a staging copy, build its indexes, then rename it over the live table. PostgreSQL only; elsewhere, and for
+     * tables with triggers or row-level security, the upload falls back to {@link #TRUNCATE}.
+     */
+    SHADOW_SWAP,
+    /** Diff the upload against the live table by key columns and apply only the INSERT/UPDATE/DELETE delta. */
+    MERGE
+}
@@ -0,0 +1,117 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ReloadMode;
+import com.example.demo.service.ResumableUploadService;
+import com.example.demo.service.UploadJob;
+import com.example.demo.service.UploadSession;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Large-file uploads sent as raw request bodies, so they never pass through the multipart parser and its
+ * size limit: open a session, PUT the content (whole or in chunks at increasing offsets), then complete it.
+ */
+@RestController
+@RequestMapping("/tables")
+public class ResumableUploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    public ResumableUploadController(ResumableUploadService resumableUploadService) {
+        this.resumableUploadService = resumableUploadService;
+    }
+
+    @PostMapping("/{table_id}/uploads")
+    public ResponseEntity<Map<String, Object>> openUpload(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam("filename") String filename,
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @RequestParam(value = "size", required = false) Long size) {
+
+        try {
+            UploadSession session = resumableUploadService.open(tableId, groups, filename, contentType, size);
+            return ResponseEntity.status(HttpStatus.CREATED).body(session.toMap());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{table_id}/uploads/{upload_id}")
+    public ResponseEntity<Map<String, Object>> appendUpload(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("upload_id") String uploadId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam(value = "offset", defaultValue = "0") long offset,
+            HttpServletRequest request) {
+
+        try {
+            UploadSession session = resumableUploadService.append(tableId, uploadId, groups, offset, request.getInputStream());
+            return ResponseEntity.ok(session.toMap());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{table_id}/uploads/{upload_id}")
+    public ResponseEntity<Map<String, Object>> getUpload(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("upload_id") String uploadId,
+            @RequestParam("groups") List<String> groups) {
+
+        try {
+            return ResponseEntity.ok(resumableUploadService.findSession(tableId, uploadId, groups).toMap());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        }
+    }
+
+    @PostMapping("/{table_id}/uploads/{upload_id}/complete")
+    public ResponseEntity<Map<String, Object>> completeUpload(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("upload_id") String uploadId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam(value = "mode", required = false) ReloadMode mode,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
+
+        try {
+            if (async) {
+                UploadJob job = resumableUploadService.submit(tableId, uploadId, groups, mode);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                        "jobId", job.getId(),
+                        "status", job.getStatus(),
+                        "statusUrl", "/tables/" + tableId + "/jobs/" + job.getId()
+                ));
+            }
+            return ResponseEntity.ok(resumableUploadService.complete(tableId, uploadId, groups, mode));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{table_id}/uploads/{upload_id}")
+    public ResponseEntity<?> abortUpload(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("upload_id") String uploadId,
+            @RequestParam("groups") List<String> groups) {
+
+        try {
+            resumableUploadService.abort(tableId, uploadId, groups);
+            return ResponseEntity.noContent().build();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts files too large for the multipart limit. The client opens a session, sends the content as raw request
+ * bodies (in one piece or as consecutive chunks that can be resumed from {@link UploadSession#getReceived()}
+ * after a failure) and completes it. Content goes straight from the request stream to a file in the spool
+ * directory through a {@link FileChannel}, capped per table by {@code upload.spool.table-max-bytes} (default
+ * {@code upload.spool.max-bytes}); the completed file is then parsed from disk like any other spooled upload.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadService.class);
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final ExcelUploadService excelUploadService;
+    private final UploadJobService uploadJobService;
+    private final Path spoolDirectory;
+    private final long defaultMaxBytes;
+    private final Map<String, Long> tableMaxBytes;
+    private final Duration sessionTtl;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ResumableUploadService(ExcelUploadService excelUploadService,
+                                  UploadJobService uploadJobService,
+                                  @Value("${upload.spool.dir:${java.io.tmpdir}}") String spoolDirectory,
+                                  @Value("${upload.spool.max-bytes:524288000}") long defaultMaxBytes,
+                                  @Value("#{${upload.spool.table-max-bytes:{:}}}") Map<String, Long> tableMaxBytes,
+                                  @Value("${upload.spool.session-ttl:24h}") Duration sessionTtl) {
+        this.excelUploadService = excelUploadService;
+        this.uploadJobService = uploadJobService;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.defaultMaxBytes = defaultMaxBytes;
+        this.tableMaxBytes = Map.copyOf(tableMaxBytes);
+        this.sessionTtl = sessionTtl;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(this::discard);
+    }
+
+    public UploadSession open(String tableName, List<String> groups, String filename, String contentType, Long expectedBytes) {
+        evictExpiredSessions();
+        excelUploadService.checkUploadPermission(tableName, groups);
+
+        long maxBytes = tableMaxBytes.getOrDefault(tableName, defaultMaxBytes);
+        if (expectedBytes != null && (expectedBytes < 0 || expectedBytes > maxBytes)) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Uploads to " + tableName + " are limited to " + maxBytes + " bytes");
+        }
+        Path path;
+        try {
+            Files.createDirectories(spoolDirectory);
+            path = Files.createTempFile(spoolDirectory, "upload-spool-", ".part");
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not create upload file", e);
+        }
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), tableName, filename, contentType,
+                path, maxBytes, expectedBytes);
+        sessions.put(session.getId(), session);
+        log.info("Opened upload session {} for {} ({})", session.getId(), tableName, filename);
+        return session;
+    }
+
+    /**
+     * Checks that {@code groups} may upload to the table before the session is looked up, so an upload id alone
+     * gives no access to another table's upload.
+     */
+    public UploadSession findSession(String tableName, String uploadId, List<String> groups) {
+        excelUploadService.checkUploadPermission(tableName, groups);
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.getTableName().equals(tableName)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * Appends {@code body} at {@code offset}, which must equal the bytes received so far. If the transfer breaks
+     * off, everything written up to that point is kept and the client resumes from the session's new offset.
+     */
+    public UploadSession append(String tableName, String uploadId, List<String> groups, long offset, InputStream body) {
+        UploadSession session = findSession(tableName, uploadId, groups);
+        synchronized (session) {
+            if (session.isClosed()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found: " + uploadId);
+            }
+            if (offset != session.getReceived()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Upload " + uploadId + " continues at offset " + session.getReceived());
+            }
+            long limit = session.getExpectedBytes() != null ? session.getExpectedBytes() : session.getMaxBytes();
+            long position = offset;
+            try (FileChannel channel = FileChannel.open(session.getPath(), StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(body)) {
+                while (true) {
+                    // ask for one byte past the limit so an oversized body is detected rather than cut off
+                    long transferred = channel.transferFrom(source, position, Math.min(TRANSFER_CHUNK, limit - position + 1));
+                    if (transferred <= 0) break;
+                    position += transferred;
+                    if (position > limit) {
+                        sessions.remove(uploadId);
+                        discard(session);
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Upload exceeds " + limit + " bytes for " + tableName);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Upload {} interrupted at offset {}: {}", uploadId, position, e.getMessage());
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Upload interrupted, resume at offset " + position, e);
+            } finally {
+                if (!session.isClosed()) session.setReceived(position);
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Processes the completed file in the request thread, as the multipart endpoint does.
+     */
+    public Map<String, Object> complete(String tableName, String uploadId, List<String> groups, ReloadMode mode) {
+        SpooledMultipartFile file = close(tableName, uploadId, groups);
+        try {
+            return mode == null ? excelUploadService.uploadExcelFile(tableName, groups, file)
+                    : excelUploadService.uploadExcelFile(tableName, groups, file, mode);
+        } finally {
+            deleteQuietly(file.getPath());
+        }
+    }
+
+    /**
+     * Hands the completed file to a background upload job, which deletes it when done.
+     */
+    public UploadJob submit(String tableName, String uploadId, List<String> groups, ReloadMode mode) {
+        return uploadJobService.submit(tableName, groups, close(tableName, uploadId, groups), mode);
+    }
+
+    public void abort(String tableName, String uploadId, List<String> groups) {
+        UploadSession session = findSession(tableName, uploadId, groups);
+        synchronized (session) {
+            sessions.remove(uploadId);
+            discard(session);
+        }
+    }
+
+    private SpooledMultipartFile close(String tableName, String uploadId, List<String> groups) {
+        UploadSession session = findSession(tableName, uploadId, groups);
+        synchronized (session) {
+            if (session.isClosed()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found: " + uploadId);
+            }
+            Long expected = session.getExpectedBytes();
+            if (expected != null && session.getReceived() != expected) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Upload incomplete: received " + session.getReceived() + " of " + expected + " bytes");
+            }
+            if (session.getReceived() == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload " + uploadId + " is empty");
+            }
+            sessions.remove(uploadId);
+            session.close();
+            return new SpooledMultipartFile(session.getPath(), session.getFilename(), session.getContentType());
+        }
+    }
+
+    private void evictExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+        sessions.values().removeIf(session -> {
+            if (!session.getLastActivity().isBefore(cutoff)) return false;
+            synchronized (session) {
+                discard(session);
+            }
+            return true;
+        });
+    }
+
+    private void discard(UploadSession session) {
+        session.close();
+        deleteQuietly(session.getPath());
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+        }
+    }
+}
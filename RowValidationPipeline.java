@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fans row validation out over a shared worker pool. The calling (reader) thread groups rows into batches,
+ * workers process batches in parallel, and results are merged back on the calling thread strictly in
+ * submission order, so error lists and duplicate-key reports are the same as a sequential run. At most
+ * {@code 2 x parallelism} batches are submitted but not yet merged: once that many are outstanding the reader
+ * waits for the oldest one, so it never runs ahead of a slow batch by more than that.
+ */
+@Service
+public class RowValidationPipeline {
+
+    private final ForkJoinPool workers;
+    private final int batchSize;
+    private final int maxInFlight;
+
+    public RowValidationPipeline(@Value("${upload.validation.parallelism:0}") int parallelism,
+                                 @Value("${upload.validation.batch-size:2000}") int batchSize) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.workers = new ForkJoinPool(threads);
+        this.batchSize = batchSize;
+        this.maxInFlight = threads * 2;
+    }
+
+    public <I, O> Session<I, O> open(Function<List<I>, O> worker, Consumer<O> merger) {
+        return new Session<>(worker, merger);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * One pipeline run. Not thread-safe: {@link #add}, {@link #finish} and {@link #close} belong to the reader thread.
+     */
+    public final class Session<I, O> implements AutoCloseable {
+        private final Function<List<I>, O> worker;
+        private final Consumer<O> merger;
+        private final Deque<CompletableFuture<O>> pending = new ArrayDeque<>();
+        private List<I> batch = new ArrayList<>(batchSize);
+
+        private Session(Function<List<I>, O> worker, Consumer<O> merger) {
+            this.worker = worker;
+            this.merger = merger;
+        }
+
+        public void add(I item) {
+            batch.add(item);
+            if (batch.size() >= batchSize) submit();
+        }
+
+        public void finish() {
+            if (!batch.isEmpty()) submit();
+            while (!pending.isEmpty()) mergeHead();
+        }
+
+        @Override
+        public void close() {
+            pending.forEach(future -> future.cancel(false));
+            pending.clear();
+        }
+
+        private void submit() {
+            List<I> items = batch;
+            batch = new ArrayList<>(batchSize);
+            // a finished batch still holds its slot until it is merged, or results would pile up behind a slow head
+            while (pending.size() >= maxInFlight) mergeHead();
+            pending.add(CompletableFuture.supplyAsync(() -> worker.apply(items), workers));
+
+            // merge whatever already finished so early failures surface while still reading
+            while (!pending.isEmpty() && pending.peekFirst().isDone()) mergeHead();
+        }
+
+        private void mergeHead() {
+            try {
+                merger.accept(pending.removeFirst().join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+    }
+}
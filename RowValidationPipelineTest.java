@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowValidationPipelineTest {
+
+    private final RowValidationPipeline pipeline = new RowValidationPipeline(2, 1);
+
+    @AfterEach
+    void shutdown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    @Timeout(10)
+    void mergesInSubmissionOrder() {
+        List<Integer> merged = new ArrayList<>();
+        try (RowValidationPipeline.Session<Integer, Integer> session = pipeline.open(items -> {
+            int item = items.get(0);
+            if (item % 7 == 0) sleep(5);
+            return item;
+        }, merged::add)) {
+            for (int i = 0; i < 50; i++) session.add(i);
+            session.finish();
+        }
+        assertEquals(IntStream.range(0, 50).boxed().toList(), merged);
+    }
+
+    @Test
+    @Timeout(10)
+    void readerWaitsForSlowHeadBatch() throws Exception {
+        CountDownLatch head = new CountDownLatch(1);
+        CountDownLatch othersInFlight = new CountDownLatch(3);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger startedPastBound = new AtomicInteger();
+        List<Integer> merged = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try (RowValidationPipeline.Session<Integer, Integer> session = pipeline.open(items -> {
+                started.incrementAndGet();
+                int item = items.get(0);
+                if (item == 0) await(head);
+                else if (item < 4) othersInFlight.countDown();
+                // two workers, so four batches may be outstanding; the rest must wait for the head to be merged
+                else if (head.getCount() > 0) startedPastBound.incrementAndGet();
+                return item;
+            }, merged::add)) {
+                for (int i = 0; i < 100; i++) session.add(i);
+                session.finish();
+            }
+        });
+        reader.start();
+
+        othersInFlight.await();
+        // the reader parks joining the head once the fourth batch is submitted
+        while (reader.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        assertEquals(0, startedPastBound.get());
+
+        head.countDown();
+        reader.join();
+        assertEquals(0, startedPastBound.get());
+        assertEquals(100, started.get());
+        assertEquals(IntStream.range(0, 100).boxed().toList(), merged);
+    }
+
+    @Test
+    @Timeout(10)
+    void workerFailureSurfacesOnReaderThread() {
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> {
+            try (RowValidationPipeline.Session<Integer, Integer> session = pipeline.open(items -> {
+                if (items.get(0) == 3) throw new IllegalStateException("bad batch");
+                return items.get(0);
+            }, item -> {
+            })) {
+                for (int i = 0; i < 10; i++) session.add(i);
+                session.finish();
+            }
+        });
+        assertEquals("bad batch", failure.getMessage());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
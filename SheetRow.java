@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * One row as read from an upload, with numeric, date and boolean workbook cells kept as the raw values the file
+ * stores instead of formatted text, so typed columns are cast without a string round trip. As a list it yields
+ * each cell's text (numbers without a trailing ".0", dates in ISO form), which is what regex validation and text
+ * columns see; the text of a typed cell is only built when asked for. Date cells are read in the workbook's date
+ * system, 1900 or 1904.
+ */
+public final class SheetRow extends AbstractList<String> implements RandomAccess {
+
+    public enum Kind {
+        BLANK, TEXT, NUMBER, DATE, BOOLEAN
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private byte[] kinds;
+    private String[] texts;
+    private double[] numbers;
+    private int size;
+    private final boolean date1904;
+
+    public SheetRow() {
+        this(16);
+    }
+
+    public SheetRow(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * {@code date1904} for rows of a workbook that counts serial days from 1904 rather than 1900.
+     */
+    public SheetRow(int capacity, boolean date1904) {
+        this.kinds = new byte[Math.max(capacity, 1)];
+        this.texts = new String[kinds.length];
+        this.date1904 = date1904;
+    }
+
+    /**
+     * A row of text cells, as delimited files and generated fixtures produce.
+     */
+    public static SheetRow ofText(List<String> cells) {
+        SheetRow row = new SheetRow(cells.size());
+        for (String cell : cells) row.addText(cell);
+        return row;
+    }
+
+    public void addBlank() {
+        add(Kind.BLANK);
+    }
+
+    public void addText(String value) {
+        int index = add(Kind.TEXT);
+        texts[index] = value;
+    }
+
+    public void addNumber(double value) {
+        addNumeric(Kind.NUMBER, value);
+    }
+
+    /**
+     * A date-formatted cell, as its Excel serial day number.
+     */
+    public void addDate(double excelDate) {
+        addNumeric(Kind.DATE, excelDate);
+    }
+
+    public void addBoolean(boolean value) {
+        addNumeric(Kind.BOOLEAN, value ? 1 : 0);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String get(int index) {
+        Objects.checkIndex(index, size);
+        return text(index);
+    }
+
+    /**
+     * {@link Kind#BLANK} for cells past the end of the row.
+     */
+    public Kind kind(int index) {
+        return index < size ? KINDS[kinds[index]] : Kind.BLANK;
+    }
+
+    /**
+     * The cell's value for {@link Kind#NUMBER} and {@link Kind#DATE} cells.
+     */
+    public double number(int index) {
+        return numbers[index];
+    }
+
+    public boolean isDate1904() {
+        return date1904;
+    }
+
+    public boolean bool(int index) {
+        return numbers[index] != 0;
+    }
+
+    /**
+     * The text validation sees: "" for blank cells and cells past the end of the row.
+     */
+    public String text(int index) {
+        return switch (kind(index)) {
+            case BLANK -> "";
+            case TEXT -> texts[index];
+            case NUMBER -> formatNumber(numbers[index]);
+            case DATE -> formatDate(numbers[index]);
+            case BOOLEAN -> String.valueOf(bool(index));
+        };
+    }
+
+    /**
+     * The local date-time of an Excel serial day number, counted from 1904 when {@code date1904}.
+     */
+    public static LocalDateTime excelDateTime(double excelDate, boolean date1904) {
+        return DateUtil.getLocalDateTime(excelDate, date1904);
+    }
+
+    private static String formatNumber(double value) {
+        return value == Math.floor(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private String formatDate(double excelDate) {
+        if (!DateUtil.isValidExcelDate(excelDate)) return formatNumber(excelDate);
+        LocalDateTime dateTime = excelDateTime(excelDate, date1904);
+        return dateTime.toLocalTime().toNanoOfDay() == 0 ? dateTime.toLocalDate().toString() : dateTime.toString();
+    }
+
+    private void addNumeric(Kind kind, double value) {
+        int index = add(kind);
+        if (numbers == null) numbers = new double[kinds.length];
+        numbers[index] = value;
+    }
+
+    private int add(Kind kind) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            if (numbers != null) numbers = Arrays.copyOf(numbers, capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        return size++;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetRowTest {
+
+    @Test
+    void typedCellsReadAsText() {
+        SheetRow row = new SheetRow(1);
+        row.addNumber(42);
+        row.addNumber(1.5);
+        row.addBoolean(true);
+        row.addBlank();
+
+        assertEquals("42", row.get(0));
+        assertEquals("1.5", row.get(1));
+        assertEquals("true", row.get(2));
+        assertEquals("", row.get(3));
+        assertEquals("", row.text(10));
+        assertEquals(SheetRow.Kind.BLANK, row.kind(10));
+    }
+
+    @Test
+    void datesFollowTheWorkbookDateSystem() {
+        SheetRow row1900 = new SheetRow(1);
+        row1900.addDate(45000);
+        SheetRow row1904 = new SheetRow(1, true);
+        row1904.addDate(45000 - 1462);
+        row1904.addDate(45000.5 - 1462);
+
+        assertEquals("2023-03-15", row1900.get(0));
+        assertEquals("2023-03-15", row1904.get(0));
+        assertEquals("2023-03-15T12:00", row1904.get(1));
+        assertEquals(LocalDateTime.of(1904, 1, 1, 0, 0), SheetRow.excelDateTime(0, true));
+    }
+}
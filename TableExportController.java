@@ -0,0 +1,53 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.TableExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/tables")
+public class TableExportController {
+
+    private static final MediaType XLSX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private final TableExportService tableExportService;
+
+    public TableExportController(TableExportService tableExportService) {
+        this.tableExportService = tableExportService;
+    }
+
+    @GetMapping("/{table_id}")
+    public ResponseEntity<?> exportTable(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam(value = "version", required = false) String version,
+            @RequestParam(value = "format", defaultValue = "xlsx") String format) {
+
+        TableExportService.Format exportFormat;
+        try {
+            exportFormat = TableExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + format));
+        }
+        try {
+            tableExportService.verifyExportable(tableId, groups, version);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        }
+
+        String filename = tableId + (version != null ? "-" + version : "") + "." + exportFormat.name().toLowerCase();
+        StreamingResponseBody body = out -> tableExportService.export(tableId, groups, version, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == TableExportService.Format.XLSX ? XLSX : MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
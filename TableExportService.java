@@ -0,0 +1,248 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.LookUpTableEntity;
+import com.example.demo.repository.LookUpTableRepository;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports a lookup table to users in {@code downloadable_by_groups}, with the headers and column order of its
+ * bulk upload form, so an export can be edited and uploaded again. The live table is read through a JDBC cursor
+ * ({@code upload.export.fetch-size}), past versions from their snapshots; rows go straight to the response as
+ * CSV or through a streaming workbook that keeps {@code upload.export.xlsx-row-window} rows in memory.
+ */
+@Service
+public class TableExportService {
+
+    public enum Format {
+        CSV, XLSX
+    }
+
+    private static final int MAX_SHEET_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final long MAX_EXACT_INTEGER = 999_999_999_999_999L;
+    private static final int MAX_SIGNIFICANT_DIGITS = 15;
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final LookUpTableRepository lookUpTableRepository;
+    private final UploadPlanCache uploadPlanCache;
+    private final TableVersionReadService tableVersionReadService;
+    private final DynamicTableService dynamicTableService;
+    private final int fetchSize;
+    private final int rowWindow;
+
+    public TableExportService(LookUpTableRepository lookUpTableRepository,
+                              UploadPlanCache uploadPlanCache,
+                              TableVersionReadService tableVersionReadService,
+                              DynamicTableService dynamicTableService,
+                              @Value("${upload.export.fetch-size:1000}") int fetchSize,
+                              @Value("${upload.export.xlsx-row-window:100}") int rowWindow) {
+        this.lookUpTableRepository = lookUpTableRepository;
+        this.uploadPlanCache = uploadPlanCache;
+        this.tableVersionReadService = tableVersionReadService;
+        this.dynamicTableService = dynamicTableService;
+        this.fetchSize = fetchSize;
+        this.rowWindow = rowWindow;
+    }
+
+    /**
+     * Fails with the same errors as {@link #export} would, before a streamed response is committed.
+     */
+    @Transactional(readOnly = true)
+    public void verifyExportable(String tableName, List<String> groups, String version) {
+        if (version == null) {
+            tableVersionReadService.verifyDownloadable(tableName, groups);
+        } else {
+            tableVersionReadService.verifyReadable(tableName, groups, version);
+        }
+        findPlan(tableName);
+    }
+
+    /**
+     * Writes the live table, or {@code version} of it when given, to {@code out}.
+     */
+    @Transactional(readOnly = true)
+    public void export(String tableName, List<String> groups, String version, Format format, OutputStream out) throws IOException {
+        if (version == null) tableVersionReadService.verifyDownloadable(tableName, groups);
+        UploadPlan plan = findPlan(tableName);
+        List<UploadPlan.PlanColumn> columns = plan.getColumns();
+        List<String> headers = columns.stream().map(UploadPlan.PlanColumn::getExcelColumnName).toList();
+
+        try (RowWriter writer = format == Format.XLSX ? new XlsxRowWriter(out, headers, rowWindow) : new CsvRowWriter(out, headers)) {
+            try {
+                if (version == null) {
+                    List<String> columnNames = columns.stream().map(UploadPlan.PlanColumn::getColumnName).toList();
+                    dynamicTableService.forEachRow(plan, columnNames, fetchSize, values -> writer.writeRowUnchecked(values));
+                } else {
+                    tableVersionReadService.forEachRow(tableName, groups, version,
+                            row -> writer.writeRowUnchecked(valuesOf(row, columns)));
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+        }
+    }
+
+    private UploadPlan findPlan(String tableName) {
+        LookUpTableEntity lookUpTable = lookUpTableRepository.findByTableName(tableName)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Table not found: " + tableName));
+        return uploadPlanCache.getPlan(tableName, lookUpTable);
+    }
+
+    private static Object[] valuesOf(Map<String, Object> row, List<UploadPlan.PlanColumn> columns) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(columns.get(i).getColumnName());
+        }
+        return values;
+    }
+
+    private abstract static class RowWriter implements AutoCloseable {
+
+        abstract void writeRow(Object[] values) throws IOException;
+
+        abstract void finish() throws IOException;
+
+        @Override
+        public abstract void close() throws IOException;
+
+        void writeRowUnchecked(Object[] values) {
+            try {
+                writeRow(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+        private final BufferedWriter writer;
+
+        private CsvRowWriter(OutputStream out, List<String> headers) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writeRow(headers.toArray());
+        }
+
+        @Override
+        void writeRow(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(quote(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+
+        /**
+         * Text starting with a formula character gets a leading apostrophe, so spreadsheet applications opening the
+         * export show it instead of evaluating it. Numbers are left alone.
+         */
+        private static String quote(Object value) {
+            if (value == null) return "";
+            String text = value.toString();
+            if (!(value instanceof Number) && !text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /**
+     * Starts a new sheet (with the header repeated) whenever one reaches Excel's row limit.
+     */
+    private static final class XlsxRowWriter extends RowWriter {
+        private final OutputStream out;
+        private final List<String> headers;
+        private final SXSSFWorkbook workbook;
+        private Sheet sheet;
+        private int nextRow;
+
+        private XlsxRowWriter(OutputStream out, List<String> headers, int rowWindow) {
+            this.out = out;
+            this.headers = headers;
+            this.workbook = new SXSSFWorkbook(rowWindow);
+            this.workbook.setCompressTempFiles(true);
+            newSheet();
+        }
+
+        @Override
+        void writeRow(Object[] values) {
+            if (nextRow == MAX_SHEET_ROWS) newSheet();
+            Row row = sheet.createRow(nextRow++);
+            for (int c = 0; c < values.length; c++) {
+                Object value = values[c];
+                if (value == null) continue;
+                Cell cell = row.createCell(c);
+                if (value instanceof Number number) {
+                    if (exactInWorkbook(number)) cell.setCellValue(number.doubleValue());
+                    else cell.setCellValue(number instanceof BigDecimal decimal ? decimal.toPlainString() : number.toString());
+                } else if (value instanceof Boolean bool) {
+                    cell.setCellValue(bool);
+                } else {
+                    cell.setCellValue(value.toString());
+                }
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            workbook.write(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            workbook.dispose();
+            workbook.close();
+        }
+
+        /**
+         * Whether Excel shows {@code number} exactly as a numeric cell: cells are doubles displayed to 15 significant
+         * digits, so larger BIGINT values and longer DECIMAL values are written as text instead of being rounded.
+         */
+        private static boolean exactInWorkbook(Number number) {
+            if (number instanceof Long value) return Math.abs(value) <= MAX_EXACT_INTEGER;
+            if (number instanceof BigInteger value) return value.abs().compareTo(BigInteger.valueOf(MAX_EXACT_INTEGER)) <= 0;
+            if (number instanceof BigDecimal value) {
+                return value.stripTrailingZeros().precision() <= MAX_SIGNIFICANT_DIGITS && Double.isFinite(value.doubleValue());
+            }
+            return true;
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet(workbook.getNumberOfSheets() == 0 ? "Data" : "Data " + (workbook.getNumberOfSheets() + 1));
+            nextRow = 0;
+            writeRow(headers.toArray());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.LookupTableCache;
+import com.example.demo.service.TableVersionReadService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/tables")
+public class TableLookupController {
+
+    private final LookupTableCache lookupTableCache;
+    private final TableVersionReadService tableVersionReadService;
+
+    public TableLookupController(LookupTableCache lookupTableCache, TableVersionReadService tableVersionReadService) {
+        this.lookupTableCache = lookupTableCache;
+        this.tableVersionReadService = tableVersionReadService;
+    }
+
+    /**
+     * The live row with the given key, one {@code key} parameter per key column in {@code key_columns} order.
+     */
+    @GetMapping("/{table_id}/lookup")
+    public ResponseEntity<?> lookup(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam("key") List<String> key) {
+
+        try {
+            tableVersionReadService.verifyDownloadable(tableId, groups);
+            return lookupTableCache.get(tableId, key)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No row with key " + key)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * One entry per key in the request body, null where the table has no such row.
+     */
+    @PostMapping("/{table_id}/lookup")
+    public ResponseEntity<?> lookupAll(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups,
+            @RequestBody List<List<Object>> keys) {
+
+        try {
+            tableVersionReadService.verifyDownloadable(tableId, groups);
+            return ResponseEntity.ok(lookupTableCache.getAll(tableId, keys));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orders uploads to the same table, whichever way they arrive (single, resumable, async or batch): an upload takes
+ * its tables' locks before it assigns a version and holds them until its transaction completes, so versions,
+ * history deltas and live contents are written in one order. Locks are fair and taken in name order, so a batch
+ * never deadlocks against another batch. Waiting longer than {@code upload.lock.timeout} is a 409. The locks are
+ * per instance; the async queue in {@link UploadJobService} is too.
+ */
+@Service
+public class TableUploadLocks {
+
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final Duration timeout;
+
+    public TableUploadLocks(@Value("${upload.lock.timeout:5m}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Locks {@code tableNames} until the current transaction commits or rolls back.
+     */
+    public void lockForTransaction(Collection<String> tableNames) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Table upload locks need an active transaction");
+        }
+        for (String tableName : tableNames.stream().sorted().distinct().toList()) {
+            ReentrantLock lock = locks.computeIfAbsent(tableName, t -> new ReentrantLock(true));
+            acquire(tableName, lock);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    lock.unlock();
+                }
+            });
+        }
+    }
+
+    private void acquire(String tableName, ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Another upload to " + tableName + " is still running, retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for upload lock on " + tableName, e);
+        }
+    }
+}
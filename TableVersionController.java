@@ -0,0 +1,90 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.VersionRowsPage;
+import com.example.demo.service.TableVersionReadService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/tables")
+public class TableVersionController {
+
+    private final TableVersionReadService tableVersionReadService;
+
+    public TableVersionController(TableVersionReadService tableVersionReadService) {
+        this.tableVersionReadService = tableVersionReadService;
+    }
+
+    @GetMapping("/{table_id}/versions")
+    public ResponseEntity<?> listVersions(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups) {
+
+        try {
+            return ResponseEntity.ok(tableVersionReadService.listVersions(tableId, groups));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{table_id}/versions/{version}/rows")
+    public ResponseEntity<?> readVersionRows(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("version") String version,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+
+        try {
+            VersionRowsPage page = tableVersionReadService.readRows(tableId, groups, version, offset, limit);
+            return ResponseEntity.ok(page);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{table_id}/rows")
+    public ResponseEntity<?> readRowsAsOf(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam("asOf") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+
+        try {
+            String version = tableVersionReadService.resolveVersionAt(tableId, groups, asOf);
+            return ResponseEntity.ok(tableVersionReadService.readRows(tableId, groups, version, offset, limit));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/{table_id}/versions/{version}/snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVersion(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("version") String version,
+            @RequestParam("groups") List<String> groups) {
+
+        try {
+            tableVersionReadService.verifyReadable(tableId, groups, version);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+        StreamingResponseBody body = out -> tableVersionReadService.streamRows(tableId, groups, version, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.VersionRowsPage;
+import com.example.demo.entity.LookUpTableEntity;
+import com.example.demo.entity.RuleAppTableVersionEntity;
+import com.example.demo.repository.LookUpTableRepository;
+import com.example.demo.repository.RuleAppTableVersionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads past versions of a lookup table back from its historical snapshots.
+ * Full snapshots are streamed straight from the stored chunks (paging stops decoding once the page is filled);
+ * delta snapshots have to be reconstructed from their base chain, and the most recently reconstructed versions
+ * are kept in an LRU cache bounded by {@code upload.history.cache-max-rows}.
+ */
+@Service
+public class TableVersionReadService {
+
+    private static final Logger log = LoggerFactory.getLogger(TableVersionReadService.class);
+
+    private final LookUpTableRepository lookUpTableRepository;
+    private final RuleAppTableVersionRepository ruleAppTableVersionRepository;
+    private final HistoricalSnapshotStore historicalSnapshotStore;
+    private final ObjectMapper objectMapper;
+    private final long cacheMaxRows;
+    private final LinkedHashMap<String, List<Map<String, Object>>> reconstructed = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+
+    public TableVersionReadService(LookUpTableRepository lookUpTableRepository,
+                                   RuleAppTableVersionRepository ruleAppTableVersionRepository,
+                                   HistoricalSnapshotStore historicalSnapshotStore,
+                                   @Value("${upload.history.cache-max-rows:1000000}") long cacheMaxRows) {
+        this.lookUpTableRepository = lookUpTableRepository;
+        this.ruleAppTableVersionRepository = ruleAppTableVersionRepository;
+        this.historicalSnapshotStore = historicalSnapshotStore;
+        this.cacheMaxRows = cacheMaxRows;
+
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> listVersions(String tableName, List<String> groups) {
+        checkDownloadPermission(tableName, groups);
+        return findVersions(tableName).stream()
+                .sorted(Comparator.comparing(RuleAppTableVersionEntity::getValidityStart))
+                .map(v -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("version", versionString(v));
+                    entry.put("validityStart", v.getValidityStart());
+                    entry.put("validityEnd", v.getValidityEnd());
+                    entry.put("createdBy", v.getCreatedBy());
+                    return entry;
+                })
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public String resolveVersionAt(String tableName, List<String> groups, LocalDateTime at) {
+        checkDownloadPermission(tableName, groups);
+        return findVersions(tableName).stream()
+                .filter(v -> !v.getValidityStart().isAfter(at) && (v.getValidityEnd() == null || v.getValidityEnd().isAfter(at)))
+                .max(Comparator.comparing(RuleAppTableVersionEntity::getValidityStart))
+                .map(this::versionString)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No version of " + tableName + " was valid at " + at));
+    }
+
+    @Transactional(readOnly = true)
+    public VersionRowsPage readRows(String tableName, List<String> groups, String version, int offset, int limit) {
+        checkDownloadPermission(tableName, groups);
+        if (offset < 0 || limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "offset must be >= 0 and limit > 0");
+        }
+        HistoricalSnapshotStore.SnapshotManifest manifest = findManifest(tableName, version);
+
+        List<Map<String, Object>> cached = cachedVersion(tableName, version);
+        if (cached == null && manifest.base() == null) {
+            List<Map<String, Object>> page = new ArrayList<>(limit);
+            int[] seen = {0};
+            boolean[] hasMore = {false};
+            try {
+                historicalSnapshotStore.forEachRow(tableName, version, row -> {
+                    if (seen[0]++ < offset) return;
+                    if (page.size() == limit) {
+                        hasMore[0] = true;
+                        throw PageFilled.INSTANCE;
+                    }
+                    page.add(row);
+                });
+            } catch (PageFilled filled) {
+                // stop decoding once the page and its look-ahead row are read
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + tableName + " " + version, e);
+            }
+            return new VersionRowsPage(tableName, version, offset, limit, hasMore[0], page);
+        }
+
+        List<Map<String, Object>> rows = cached != null ? cached : reconstruct(tableName, version);
+        int from = Math.min(offset, rows.size());
+        int to = Math.min(rows.size(), from + limit);
+        return new VersionRowsPage(tableName, version, offset, limit, to < rows.size(), rows.subList(from, to));
+    }
+
+    /**
+     * Fails with the same errors as {@link #streamRows} would, before a streamed response is committed.
+     */
+    @Transactional(readOnly = true)
+    public void verifyReadable(String tableName, List<String> groups, String version) {
+        checkDownloadPermission(tableName, groups);
+        findManifest(tableName, version);
+    }
+
+    /**
+     * Fails unless the table exists and one of {@code groups} may download it.
+     */
+    @Transactional(readOnly = true)
+    public void verifyDownloadable(String tableName, List<String> groups) {
+        checkDownloadPermission(tableName, groups);
+    }
+
+    /**
+     * Writes every row of the version to {@code out} as a JSON array without building the response in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamRows(String tableName, List<String> groups, String version, OutputStream out) throws IOException {
+        checkDownloadPermission(tableName, groups);
+        findManifest(tableName, version);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            visitRows(tableName, version, row -> {
+                try {
+                    generator.writeObject(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Passes every row of the version to {@code action} in snapshot order, from the reconstruction cache if the
+     * version is in it and straight from the stored chunks otherwise. An {@link UncheckedIOException} thrown by
+     * {@code action} is rethrown as its cause.
+     */
+    @Transactional(readOnly = true)
+    public void forEachRow(String tableName, List<String> groups, String version,
+                           Consumer<Map<String, Object>> action) throws IOException {
+        checkDownloadPermission(tableName, groups);
+        findManifest(tableName, version);
+        visitRows(tableName, version, action);
+    }
+
+    private void visitRows(String tableName, String version, Consumer<Map<String, Object>> action) throws IOException {
+        try {
+            List<Map<String, Object>> cached = cachedVersion(tableName, version);
+            if (cached != null) {
+                cached.forEach(action);
+            } else {
+                historicalSnapshotStore.forEachRow(tableName, version, action);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Map<String, Object>> reconstruct(String tableName, String version) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try {
+            historicalSnapshotStore.forEachRow(tableName, version, rows::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reconstruct " + tableName + " " + version, e);
+        }
+        List<Map<String, Object>> result = Collections.unmodifiableList(rows);
+
+        synchronized (reconstructed) {
+            if (result.size() <= cacheMaxRows) {
+                List<Map<String, Object>> previous = reconstructed.put(cacheKey(tableName, version), result);
+                cachedRows += result.size() - (previous == null ? 0 : previous.size());
+                Iterator<List<Map<String, Object>>> eldest = reconstructed.values().iterator();
+                while (cachedRows > cacheMaxRows && eldest.hasNext()) {
+                    cachedRows -= eldest.next().size();
+                    eldest.remove();
+                }
+            }
+        }
+        log.debug("Reconstructed {} {} ({} rows)", tableName, version, result.size());
+        return result;
+    }
+
+    private List<Map<String, Object>> cachedVersion(String tableName, String version) {
+        synchronized (reconstructed) {
+            return reconstructed.get(cacheKey(tableName, version));
+        }
+    }
+
+    /**
+     * A 404 for versions without history, a 400 for a chunk record id such as {@code 1.0#1} passed as a version.
+     */
+    private HistoricalSnapshotStore.SnapshotManifest findManifest(String tableName, String version) {
+        if (version == null || version.contains(HistoricalSnapshotStore.CHUNK_SEPARATOR)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid version: " + version);
+        }
+        try {
+            return historicalSnapshotStore.findManifest(tableName, version)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "No historical data for " + tableName + " version " + version));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read manifest of " + tableName + " " + version, e);
+        }
+    }
+
+    private List<RuleAppTableVersionEntity> findVersions(String tableName) {
+        RuleAppTableVersionEntity probe = new RuleAppTableVersionEntity();
+        probe.setTableId(tableName);
+        ExampleMatcher matcher = ExampleMatcher.matching().withIgnorePaths("version", "subVersion");
+        return ruleAppTableVersionRepository.findAll(Example.of(probe, matcher));
+    }
+
+    private void checkDownloadPermission(String tableName, List<String> groups) {
+        LookUpTableEntity lookUpTable = lookUpTableRepository.findByTableName(tableName)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Table not found: " + tableName));
+        if (!hasDownloadPermission(lookUpTable.getDownloadableByGroups(), groups)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authorized to read this table");
+        }
+    }
+
+    private boolean hasDownloadPermission(String downloadableByGroups, List<String> userGroups) {
+        if (downloadableByGroups == null || userGroups == null) return false;
+        try {
+            List<String> allowedGroups = objectMapper.readValue(downloadableByGroups, new TypeReference<>() {});
+            return userGroups.stream().anyMatch(allowedGroups::contains);
+        } catch (Exception e) {
+            log.error("Error parsing downloadableByGroups: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private String versionString(RuleAppTableVersionEntity version) {
+        return version.getVersion() + "." + version.getSubVersion();
+    }
+
+    private static String cacheKey(String tableName, String version) {
+        return tableName + HistoricalSnapshotStore.CHUNK_SEPARATOR + version;
+    }
+
+    private static final class PageFilled extends RuntimeException {
+        private static final PageFilled INSTANCE = new PageFilled();
+
+        private PageFilled() {
+            super(null, null, false, false);
+        }
+    }
+}
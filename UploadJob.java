@@ -0,0 +1,109 @@
+package com.example.demo.service;
+
+import org.springframework.security.core.context.SecurityContext;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of one background upload, see {@link UploadJobService}.
+ */
+public class UploadJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, SUPERSEDED
+    }
+
+    private final String id;
+    private final String tableName;
+    private final List<String> groups;
+    private final SpooledMultipartFile file;
+    private final ReloadMode reloadMode;
+    private final SecurityContext securityContext;
+    private final UploadProgress progress = new UploadProgress();
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+
+    UploadJob(String id, String tableName, List<String> groups, SpooledMultipartFile file, ReloadMode reloadMode,
+              SecurityContext securityContext) {
+        this.id = id;
+        this.tableName = tableName;
+        this.groups = List.copyOf(groups);
+        this.file = file;
+        this.reloadMode = reloadMode;
+        this.securityContext = securityContext;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public UploadProgress getProgress() {
+        return progress;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    List<String> getGroups() {
+        return groups;
+    }
+
+    SpooledMultipartFile getFile() {
+        return file;
+    }
+
+    ReloadMode getReloadMode() {
+        return reloadMode;
+    }
+
+    /**
+     * The submitter's security context, which the job runs under.
+     */
+    SecurityContext getSecurityContext() {
+        return securityContext;
+    }
+
+    void start() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void finish(Status status, Map<String, Object> result, String error) {
+        this.result = result;
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        progress.setStage(status == Status.SUCCEEDED ? UploadProgress.Stage.COMPLETED : UploadProgress.Stage.FAILED);
+        this.status = status;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("tableName", tableName);
+        map.put("status", status);
+        map.put("reloadMode", reloadMode);
+        map.put("submittedAt", submittedAt);
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt);
+        map.put("progress", progress.toMap());
+        if (result != null) map.put("result", result);
+        if (error != null) map.put("error", error);
+        return map;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ReloadMode;
+import com.example.demo.service.UploadJob;
+import com.example.demo.service.UploadJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/tables")
+public class UploadJobController {
+
+    private final UploadJobService uploadJobService;
+
+    public UploadJobController(UploadJobService uploadJobService) {
+        this.uploadJobService = uploadJobService;
+    }
+
+    @PostMapping(value = "/{table_id}/versions", params = "async=true")
+    public ResponseEntity<Map<String, Object>> submitUploadJob(
+            @PathVariable("table_id") String tableId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "mode", required = false) ReloadMode mode) {
+
+        try {
+            UploadJob job = uploadJobService.submit(tableId, groups, file, mode);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "jobId", job.getId(),
+                    "status", job.getStatus(),
+                    "statusUrl", "/tables/" + tableId + "/jobs/" + job.getId()
+            ));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{table_id}/jobs/{job_id}")
+    public ResponseEntity<Map<String, Object>> getUploadJob(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("job_id") String jobId,
+            @RequestParam("groups") List<String> groups) {
+
+        try {
+            return uploadJobService.findJob(tableId, jobId, groups)
+                    .map(job -> ResponseEntity.ok(job.toMap()))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job not found: " + jobId)));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs uploads in the background. The request only spools the file to disk and gets a job id back; a bounded
+ * pool runs {@link ExcelUploadService#uploadExcelFile} later. Jobs for the same table run strictly one after
+ * another (optionally coalescing queued ones so only the newest file is loaded), different tables load in parallel.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final ExcelUploadService excelUploadService;
+    private final ExecutorService executor;
+    private final Path spoolDirectory;
+    private final int maxQueuedJobs;
+    private final boolean coalesce;
+    private final Duration retention;
+    private final ReloadMode defaultReloadMode;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Deque<UploadJob>> tableQueues = new HashMap<>();
+    private final Set<String> runningTables = new HashSet<>();
+
+    public UploadJobService(ExcelUploadService excelUploadService,
+                            @Value("${upload.jobs.threads:4}") int threads,
+                            @Value("${upload.jobs.spool-dir:${java.io.tmpdir}}") String spoolDirectory,
+                            @Value("${upload.jobs.max-queued:100}") int maxQueuedJobs,
+                            @Value("${upload.jobs.coalesce:false}") boolean coalesce,
+                            @Value("${upload.jobs.retention:1h}") Duration retention,
+                            @Value("${upload.reload-mode:TRUNCATE}") ReloadMode defaultReloadMode) {
+        this.excelUploadService = excelUploadService;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.coalesce = coalesce;
+        this.retention = retention;
+        this.defaultReloadMode = defaultReloadMode;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "upload-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks that {@code groups} may upload to the table before the file is spooled, so unauthorized callers cannot
+     * fill the spool directory.
+     */
+    public UploadJob submit(String tableName, List<String> groups, MultipartFile file, ReloadMode reloadMode) {
+        excelUploadService.checkUploadPermission(tableName, groups);
+        evictExpiredJobs();
+        Path spooled = null;
+        try {
+            Files.createDirectories(spoolDirectory);
+            spooled = Files.createTempFile(spoolDirectory, "upload-job-", ".bin");
+            file.transferTo(spooled);
+        } catch (IOException e) {
+            if (spooled != null) deleteQuietly(spooled);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not store uploaded file", e);
+        }
+        return submit(tableName, groups, new SpooledMultipartFile(spooled, file.getOriginalFilename(), file.getContentType()), reloadMode);
+    }
+
+    /**
+     * Queues an upload whose file is already on local disk. The job owns the file and deletes it when done.
+     */
+    public UploadJob submit(String tableName, List<String> groups, SpooledMultipartFile file, ReloadMode reloadMode) {
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), tableName, groups, file,
+                reloadMode == null ? defaultReloadMode : reloadMode, SecurityContextHolder.getContext());
+
+        synchronized (tableQueues) {
+            long queued = tableQueues.values().stream().mapToLong(Deque::size).sum();
+            if (queued >= maxQueuedJobs) {
+                deleteQuietly(file.getPath());
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many queued uploads, retry later");
+            }
+
+            Deque<UploadJob> queue = tableQueues.computeIfAbsent(tableName, t -> new ArrayDeque<>());
+            if (coalesce) {
+                for (UploadJob superseded : queue) {
+                    superseded.finish(UploadJob.Status.SUPERSEDED, null, "Superseded by job " + job.getId());
+                    deleteQuietly(superseded.getFile().getPath());
+                }
+                queue.clear();
+            }
+            queue.add(job);
+            jobs.put(job.getId(), job);
+            startNext(tableName);
+        }
+        log.info("Queued upload job {} for {}", job.getId(), tableName);
+        return job;
+    }
+
+    /**
+     * The job if it belongs to {@code tableName}; fails like an upload would unless {@code groups} may upload to it.
+     */
+    public Optional<UploadJob> findJob(String tableName, String jobId, List<String> groups) {
+        excelUploadService.checkUploadPermission(tableName, groups);
+        return Optional.ofNullable(jobs.get(jobId)).filter(job -> job.getTableName().equals(tableName));
+    }
+
+    /** Must hold the {@code tableQueues} lock. */
+    private void startNext(String tableName) {
+        if (runningTables.contains(tableName)) return;
+        Deque<UploadJob> queue = tableQueues.get(tableName);
+        UploadJob next = queue == null ? null : queue.poll();
+        if (next == null) {
+            tableQueues.remove(tableName);
+            return;
+        }
+        runningTables.add(tableName);
+        executor.execute(() -> run(next));
+    }
+
+    private void run(UploadJob job) {
+        job.start();
+        SecurityContextHolder.setContext(job.getSecurityContext());
+        try {
+            Map<String, Object> result = excelUploadService.uploadExcelFile(
+                    job.getTableName(), job.getGroups(), job.getFile(), job.getReloadMode(), job.getProgress());
+            job.finish(UploadJob.Status.SUCCEEDED, result, null);
+        } catch (ResponseStatusException e) {
+            job.finish(UploadJob.Status.FAILED, null, e.getReason());
+        } catch (Exception e) {
+            log.error("Upload job {} for {} failed", job.getId(), job.getTableName(), e);
+            job.finish(UploadJob.Status.FAILED, null, e.getMessage());
+        } finally {
+            SecurityContextHolder.clearContext();
+            deleteQuietly(job.getFile().getPath());
+            synchronized (tableQueues) {
+                runningTables.remove(job.getTableName());
+                startNext(job.getTableName());
+            }
+        }
+    }
+
+    private void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micrometer meters for uploads, all tagged by table (exposed through Actuator's metrics endpoints):
+ * <ul>
+ *     <li>{@code upload.duration} (outcome) and {@code upload.stage.duration} (stage) timers</li>
+ *     <li>{@code upload.rows}, {@code upload.rows.per.second}, {@code upload.bytes} and
+ *     {@code upload.allocated.bytes} summaries per upload</li>
+ *     <li>{@code upload.load.batch} timer with a percentile histogram, one sample per JDBC batch</li>
+ *     <li>{@code upload.validation.errors} counter (kind: pattern, duplicate, cast, regex-timeout)</li>
+ * </ul>
+ * Allocation is measured per thread, on the uploading thread and on the validation workers while they work
+ * on the upload's batches, so it is only reported where the JVM supports thread allocation counters.
+ */
+@Service
+public class UploadMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MeterRegistry registry;
+
+    public UploadMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Recording start(String tableName, long bytes) {
+        return new Recording(tableName, bytes);
+    }
+
+    public void recordBatch(String tableName, long nanos) {
+        Timer.builder("upload.load.batch")
+                .description("Latency of one JDBC batch during a table load")
+                .tag("table", tableName)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void validationErrors(String tableName, String kind, long count) {
+        if (count <= 0) return;
+        Counter.builder("upload.validation.errors")
+                .tag("table", tableName)
+                .tag("kind", kind)
+                .register(registry)
+                .increment(count);
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, -1 if the JVM does not track it.
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Timing of one upload. Stages are entered in order; {@link #finish} closes the last one and publishes.
+     */
+    public final class Recording {
+        private final String tableName;
+        private final long bytes;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated = allocatedBytes();
+        private final LongAdder workerAllocated = new LongAdder();
+        private final Map<UploadProgress.Stage, Long> stageNanos = new LinkedHashMap<>();
+        private UploadProgress.Stage stage;
+        private long stageStart;
+
+        private Recording(String tableName, long bytes) {
+            this.tableName = tableName;
+            this.bytes = bytes;
+        }
+
+        public void stage(UploadProgress.Stage next) {
+            long now = System.nanoTime();
+            closeStage(now);
+            stage = next;
+            stageStart = now;
+        }
+
+        /**
+         * Adds what a helper thread allocated on behalf of this upload.
+         */
+        public void addAllocated(long before, long after) {
+            if (before >= 0 && after >= before) workerAllocated.add(after - before);
+        }
+
+        /**
+         * Publishes the upload's meters and returns the per-stage breakdown in milliseconds.
+         */
+        public Map<String, Object> finish(boolean success, long rows) {
+            long now = System.nanoTime();
+            closeStage(now);
+            long total = now - startNanos;
+
+            Timer.builder("upload.duration").tag("table", tableName).tag("outcome", success ? "success" : "failure")
+                    .register(registry).record(total, TimeUnit.NANOSECONDS);
+            stageNanos.forEach((name, nanos) -> Timer.builder("upload.stage.duration")
+                    .tag("table", tableName).tag("stage", name.name().toLowerCase())
+                    .register(registry).record(nanos, TimeUnit.NANOSECONDS));
+            DistributionSummary.builder("upload.bytes").baseUnit("bytes").tag("table", tableName)
+                    .register(registry).record(bytes);
+
+            long allocatedHere = allocatedBytes();
+            long allocated = startAllocated < 0 || allocatedHere < 0 ? -1
+                    : allocatedHere - startAllocated + workerAllocated.sum();
+            if (allocated >= 0) {
+                DistributionSummary.builder("upload.allocated.bytes").baseUnit("bytes").tag("table", tableName)
+                        .register(registry).record(allocated);
+            }
+            if (success) {
+                DistributionSummary.builder("upload.rows").baseUnit("rows").tag("table", tableName)
+                        .register(registry).record(rows);
+                if (total > 0) {
+                    DistributionSummary.builder("upload.rows.per.second").baseUnit("rows").tag("table", tableName)
+                            .register(registry).record(rows * 1e9 / total);
+                }
+            }
+
+            Map<String, Object> timings = new LinkedHashMap<>();
+            stageNanos.forEach((name, nanos) -> timings.put(name.name().toLowerCase(), TimeUnit.NANOSECONDS.toMillis(nanos)));
+            timings.put("total", TimeUnit.NANOSECONDS.toMillis(total));
+            if (allocated >= 0) timings.put("allocatedBytes", allocated);
+            return timings;
+        }
+
+        private void closeStage(long now) {
+            if (stage != null) stageNanos.merge(stage, now - stageStart, Long::sum);
+            stage = null;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkUploadFormColumn;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, pre-compiled description of how uploads to one lookup table are validated and loaded.
+ * Built once per table by {@link UploadPlanCache} from the table's metadata row and schema.
+ */
+public final class UploadPlan {
+
+    private final String tableName;
+    private final List<BulkUploadFormColumn> form;
+    private final List<PlanColumn> columns;
+    private final List<String> keyColumns;
+    private final int[] keyColumnIndexes;
+    private final List<String> uploadableByGroups;
+    private final List<String> insertColumns;
+    private final String insertSql;
+    private final MetadataSnapshot source;
+
+    UploadPlan(String tableName, List<BulkUploadFormColumn> form, List<String> keyColumns,
+               List<String> uploadableByGroups, List<String> insertColumns, String insertSql,
+               Duration regexTimeBudget, MetadataSnapshot source) {
+        this.tableName = tableName;
+        this.form = List.copyOf(form);
+        this.columns = form.stream().map(column -> new PlanColumn(column, regexTimeBudget)).toList();
+        this.keyColumns = List.copyOf(keyColumns);
+        this.keyColumnIndexes = keyColumns.stream().mapToInt(key -> {
+            for (int c = 0; c < form.size(); c++) {
+                if (key.equals(form.get(c).getColumnName())) return c;
+            }
+            return -1;
+        }).toArray();
+        this.uploadableByGroups = List.copyOf(uploadableByGroups);
+        this.insertColumns = List.copyOf(insertColumns);
+        this.insertSql = insertSql;
+        this.source = source;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<BulkUploadFormColumn> getForm() {
+        return form;
+    }
+
+    public List<PlanColumn> getColumns() {
+        return columns;
+    }
+
+    public List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    /**
+     * Position of each key column among {@link #getColumns()}, -1 for a key column the form does not fill.
+     */
+    public int[] getKeyColumnIndexes() {
+        return keyColumnIndexes.clone();
+    }
+
+    /**
+     * An empty row batch with one column per form column, typed by its cast.
+     */
+    public ColumnarRowBatch newBatch() {
+        return new ColumnarRowBatch(columns.stream().map(PlanColumn::getColumnName).toList(),
+                columns.stream().map(PlanColumn::getType).toList());
+    }
+
+    public List<String> getUploadableByGroups() {
+        return uploadableByGroups;
+    }
+
+    public List<String> getInsertColumns() {
+        return insertColumns;
+    }
+
+    public String getInsertSql() {
+        return insertSql;
+    }
+
+    MetadataSnapshot getSource() {
+        return source;
+    }
+
+    /**
+     * A form column with its regex compiled into a {@link CellMatcher} and its cast resolved. Supported casts are
+     * {@code int}, {@code long}, {@code double}, {@code boolean}, {@code date}, {@code timestamp},
+     * {@code decimal} or {@code decimal(p,s)}, and {@code enum(a,b,c)}, a text column limited to the listed values;
+     * anything else is kept as text.
+     */
+    public static final class PlanColumn {
+        private static final DateTimeFormatter DATE_TIME = new DateTimeFormatterBuilder()
+                .append(DateTimeFormatter.ISO_LOCAL_DATE)
+                .optionalStart().optionalStart().appendLiteral('T').optionalEnd()
+                .optionalStart().appendLiteral(' ').optionalEnd()
+                .append(DateTimeFormatter.ISO_LOCAL_TIME).optionalEnd()
+                .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                .toFormatter();
+
+        private final BulkUploadFormColumn column;
+        private final CellMatcher matcher;
+        private final ColumnarRowBatch.ColumnType type;
+        private final int precision;
+        private final int scale;
+        private final List<String> allowedValues;
+        private final Set<String> allowedSet;
+
+        private PlanColumn(BulkUploadFormColumn column, Duration regexTimeBudget) {
+            this.column = column;
+            this.matcher = column.getRegexPattern() == null ? null
+                    : CellMatcher.compile(column.getExcelColumnName(), column.getRegexPattern(), regexTimeBudget);
+
+            String castTo = column.getCastTo() == null ? "" : column.getCastTo().trim();
+            int open = castTo.indexOf('(');
+            String name = (open < 0 ? castTo : castTo.substring(0, open)).trim().toLowerCase();
+            List<String> arguments = open < 0 ? List.of() : arguments(column, castTo, open);
+            this.type = resolveType(name);
+
+            if (type == ColumnarRowBatch.ColumnType.DECIMAL && !arguments.isEmpty()) {
+                try {
+                    this.precision = Integer.parseInt(arguments.get(0));
+                    this.scale = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 0;
+                } catch (NumberFormatException e) {
+                    throw invalidCast(column);
+                }
+                if (arguments.size() > 2 || precision < 1 || scale < 0 || scale > precision) throw invalidCast(column);
+            } else {
+                this.precision = -1;
+                this.scale = -1;
+            }
+            if (name.equals("enum")) {
+                if (arguments.isEmpty()) throw invalidCast(column);
+                this.allowedValues = arguments;
+                this.allowedSet = Set.copyOf(arguments);
+            } else {
+                this.allowedValues = null;
+                this.allowedSet = null;
+            }
+        }
+
+        public String getExcelColumnName() {
+            return column.getExcelColumnName();
+        }
+
+        public String getColumnName() {
+            return column.getColumnName();
+        }
+
+        public ColumnarRowBatch.ColumnType getType() {
+            return type;
+        }
+
+        /**
+         * The values an {@code enum} column accepts, null for other columns.
+         */
+        public List<String> getAllowedValues() {
+            return allowedValues;
+        }
+
+        /**
+         * Whether {@link #matches} or {@link #isAllowed} need the cell's text; typed cells of other columns are cast
+         * without it.
+         */
+        public boolean validatesText() {
+            return matcher != null || allowedSet != null;
+        }
+
+        /**
+         * Throws a 400 if the pattern runs past its time budget on this value.
+         */
+        public boolean matches(String value) {
+            return matcher == null || value.isEmpty() || matcher.matches(value);
+        }
+
+        /**
+         * Blank cells are allowed in {@code enum} columns, as they are by patterns.
+         */
+        public boolean isAllowed(String value) {
+            return allowedSet == null || value.isEmpty() || allowedSet.contains(value);
+        }
+
+        /**
+         * Appends cell {@code cell} of {@code row}: numeric, date and boolean cells go straight into typed columns,
+         * anything else is cast from its text by {@link #appendTo(ColumnarRowBatch, int, String)}.
+         */
+        public void appendTo(ColumnarRowBatch batch, int batchColumn, SheetRow row, int cell) {
+            SheetRow.Kind kind = row.kind(cell);
+            if (kind == SheetRow.Kind.NUMBER || kind == SheetRow.Kind.DATE) {
+                if (appendNumber(batch, batchColumn, row.number(cell), row.isDate1904())) return;
+            } else if (kind == SheetRow.Kind.BOOLEAN && type == ColumnarRowBatch.ColumnType.BOOLEAN) {
+                batch.appendBoolean(batchColumn, row.bool(cell));
+                return;
+            }
+            appendTo(batch, batchColumn, row.text(cell));
+        }
+
+        /**
+         * Casts {@code value} and appends it to column {@code batchColumn} of the batch's current row. Blank cells stay
+         * empty strings in text columns and become nulls in typed ones.
+         */
+        public void appendTo(ColumnarRowBatch batch, int batchColumn, String value) {
+            if (type == ColumnarRowBatch.ColumnType.STRING || value == null) {
+                if (value == null) batch.appendNull(batchColumn);
+                else batch.appendString(batchColumn, value);
+                return;
+            }
+            if (value.isBlank()) {
+                batch.appendNull(batchColumn);
+                return;
+            }
+            String trimmed = value.trim();
+            try {
+                switch (type) {
+                    case INT -> batch.appendInt(batchColumn, Integer.parseInt(trimmed));
+                    case LONG -> batch.appendLong(batchColumn, Long.parseLong(trimmed));
+                    case DOUBLE -> batch.appendDouble(batchColumn, Double.parseDouble(trimmed));
+                    case BOOLEAN -> batch.appendBoolean(batchColumn, Boolean.parseBoolean(trimmed));
+                    case DATE -> batch.appendDate(batchColumn, LocalDate.parse(trimmed, DATE_TIME));
+                    case TIMESTAMP -> batch.appendTimestamp(batchColumn, LocalDateTime.parse(trimmed, DATE_TIME));
+                    case DECIMAL -> batch.appendDecimal(batchColumn, fitDecimal(new BigDecimal(trimmed), value));
+                    default -> batch.appendString(batchColumn, value);
+                }
+            } catch (NumberFormatException | DateTimeException | ArithmeticException e) {
+                throw cannotCast(value);
+            }
+        }
+
+        /**
+         * {@code value} cast as {@link #appendTo(ColumnarRowBatch, int, String)} would store it, boxed; null for blank
+         * cells of typed columns.
+         */
+        public Object cast(String value) {
+            if (type == ColumnarRowBatch.ColumnType.STRING || value == null) return value;
+            if (value.isBlank()) return null;
+            String trimmed = value.trim();
+            try {
+                return switch (type) {
+                    case INT -> Integer.parseInt(trimmed);
+                    case LONG -> Long.parseLong(trimmed);
+                    case DOUBLE -> Double.parseDouble(trimmed);
+                    case BOOLEAN -> Boolean.parseBoolean(trimmed);
+                    case DATE -> LocalDate.parse(trimmed, DATE_TIME);
+                    case TIMESTAMP -> LocalDateTime.parse(trimmed, DATE_TIME);
+                    case DECIMAL -> fitDecimal(new BigDecimal(trimmed), value);
+                    default -> value;
+                };
+            } catch (NumberFormatException | DateTimeException | ArithmeticException e) {
+                throw cannotCast(value);
+            }
+        }
+
+        /**
+         * Appends a workbook number (an Excel serial day number for date columns, counted from 1904 when
+         * {@code date1904}), false for text columns and booleans, which are cast from the cell's text.
+         */
+        private boolean appendNumber(ColumnarRowBatch batch, int batchColumn, double value, boolean date1904) {
+            switch (type) {
+                case INT -> {
+                    if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                        throw cannotCast(String.valueOf(value));
+                    }
+                    batch.appendInt(batchColumn, (int) value);
+                }
+                case LONG -> {
+                    if (value != Math.rint(value) || Math.abs(value) >= 0x1p63) throw cannotCast(String.valueOf(value));
+                    batch.appendLong(batchColumn, (long) value);
+                }
+                case DOUBLE -> batch.appendDouble(batchColumn, value);
+                case DECIMAL -> {
+                    if (!Double.isFinite(value)) throw cannotCast(String.valueOf(value));
+                    batch.appendDecimal(batchColumn, fitDecimal(BigDecimal.valueOf(value), String.valueOf(value)));
+                }
+                case DATE, TIMESTAMP -> {
+                    if (!DateUtil.isValidExcelDate(value)) throw cannotCast(String.valueOf(value));
+                    LocalDateTime dateTime = SheetRow.excelDateTime(value, date1904);
+                    if (type == ColumnarRowBatch.ColumnType.DATE) batch.appendDate(batchColumn, dateTime.toLocalDate());
+                    else batch.appendTimestamp(batchColumn, dateTime);
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Rounds to the declared scale, half up, and rejects values with more integer digits than the precision
+         * leaves room for.
+         */
+        private BigDecimal fitDecimal(BigDecimal value, String original) {
+            if (precision < 0) return value;
+            BigDecimal scaled = value.setScale(scale, RoundingMode.HALF_UP);
+            if (scaled.precision() - scaled.scale() > precision - scale) throw cannotCast(original);
+            return scaled;
+        }
+
+        private ResponseStatusException cannotCast(String value) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Cannot cast value '" + value + "' to " + column.getCastTo());
+        }
+
+        private static List<String> arguments(BulkUploadFormColumn column, String castTo, int open) {
+            if (!castTo.endsWith(")")) throw invalidCast(column);
+            return Arrays.stream(castTo.substring(open + 1, castTo.length() - 1).split(","))
+                    .map(String::trim)
+                    .filter(argument -> !argument.isEmpty())
+                    .toList();
+        }
+
+        private static ResponseStatusException invalidCast(BulkUploadFormColumn column) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid cast_to '" + column.getCastTo() + "' for column " + column.getExcelColumnName());
+        }
+
+        private static ColumnarRowBatch.ColumnType resolveType(String castTo) {
+            return switch (castTo) {
+                case "int", "integer" -> ColumnarRowBatch.ColumnType.INT;
+                case "long" -> ColumnarRowBatch.ColumnType.LONG;
+                case "double" -> ColumnarRowBatch.ColumnType.DOUBLE;
+                case "decimal" -> ColumnarRowBatch.ColumnType.DECIMAL;
+                case "boolean" -> ColumnarRowBatch.ColumnType.BOOLEAN;
+                case "date" -> ColumnarRowBatch.ColumnType.DATE;
+                case "timestamp", "datetime" -> ColumnarRowBatch.ColumnType.TIMESTAMP;
+                default -> ColumnarRowBatch.ColumnType.STRING;
+            };
+        }
+    }
+
+    /**
+     * The raw metadata JSON a plan was compiled from; a cached plan is stale once the row no longer matches.
+     */
+    record MetadataSnapshot(String bulkUploadForm, String keyColumns, String uploadableByGroups) {
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkUploadFormColumn;
+import com.example.demo.entity.LookUpTableEntity;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-table cache of compiled {@link UploadPlan}s with LRU size and TTL eviction.
+ * A cached plan is rebuilt as soon as the table's metadata row differs from the JSON it was compiled from;
+ * the TTL bounds how long schema changes (required columns) can go unnoticed.
+ */
+@Service
+public class UploadPlanCache {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadPlanCache.class);
+
+    private final DynamicTableService dynamicTableService;
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Duration regexTimeBudget;
+    private final Map<String, CachedPlan> plans;
+
+    public UploadPlanCache(DynamicTableService dynamicTableService,
+                           @Value("${upload.plan-cache.max-size:256}") int maxSize,
+                           @Value("${upload.plan-cache.ttl:10m}") Duration ttl,
+                           @Value("${upload.validation.regex-time-budget:100ms}") Duration regexTimeBudget) {
+        this.dynamicTableService = dynamicTableService;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.regexTimeBudget = regexTimeBudget;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+                return size() > UploadPlanCache.this.maxSize;
+            }
+        };
+
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public UploadPlan getPlan(String tableName, LookUpTableEntity lookUpTable) {
+        UploadPlan.MetadataSnapshot source = new UploadPlan.MetadataSnapshot(
+                lookUpTable.getBulkUploadForm(), lookUpTable.getKeyColumns(), lookUpTable.getUploadableByGroups());
+        long now = System.nanoTime();
+
+        synchronized (plans) {
+            CachedPlan cached = plans.get(tableName);
+            if (cached != null && cached.plan().getSource().equals(source) && now - cached.createdAt() < ttlNanos) {
+                return cached.plan();
+            }
+        }
+
+        UploadPlan plan = buildPlan(tableName, source);
+        synchronized (plans) {
+            plans.put(tableName, new CachedPlan(plan, now));
+        }
+        log.debug("Compiled upload plan for {}", tableName);
+        return plan;
+    }
+
+    /**
+     * The table's {@code uploadable_by_groups}, parsed without compiling its plan, so callers can be authorized first.
+     */
+    public List<String> getUploadableByGroups(LookUpTableEntity lookUpTable) {
+        return parseGroups(lookUpTable.getUploadableByGroups());
+    }
+
+    public void invalidate(String tableName) {
+        synchronized (plans) {
+            plans.remove(tableName);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    private UploadPlan buildPlan(String tableName, UploadPlan.MetadataSnapshot source) {
+        List<BulkUploadFormColumn> bulkUploadForm = parseBulkUploadForm(source.bulkUploadForm());
+        List<String> keyColumns = parseKeyColumns(source.keyColumns());
+        List<String> uploadableByGroups = parseGroups(source.uploadableByGroups());
+
+        List<String> insertColumns = dynamicTableService.resolveInsertColumns(tableName, bulkUploadForm);
+        String insertSql = dynamicTableService.buildSafeInsertSql(tableName, insertColumns);
+
+        return new UploadPlan(tableName, bulkUploadForm, keyColumns, uploadableByGroups, insertColumns, insertSql,
+                regexTimeBudget, source);
+    }
+
+    private List<BulkUploadFormColumn> parseBulkUploadForm(String json) {
+        if (json == null || json.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bulk upload form is null or empty");
+        }
+        try {
+            List<BulkUploadFormColumn> result = objectMapper.readValue(json, new TypeReference<>() {});
+            if (result.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bulk upload form is empty after parsing");
+            }
+            return result;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid bulk upload form format", e);
+        }
+    }
+
+    private List<String> parseKeyColumns(String json) {
+        if (json == null || json.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Key columns is null or empty");
+        }
+        try {
+            List<String> result = objectMapper.readValue(json, new TypeReference<>() {});
+            if (result.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Key columns are empty after parsing");
+            }
+            return result;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid key columns format", e);
+        }
+    }
+
+    private List<String> parseGroups(String json) {
+        if (json == null) return List.of();
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (Exception e) {
+            log.error("Error parsing uploadableByGroups: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private record CachedPlan(UploadPlan plan, long createdAt) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters for one upload, updated by the pipeline stages and read by job status polling.
+ */
+public class UploadProgress {
+
+    public enum Stage {
+        QUEUED, PARSING, VERSIONING, STORING_HISTORY, LOADING, COMPLETED, FAILED
+    }
+
+    private volatile Stage stage = Stage.QUEUED;
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsValidated = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    public void rowParsed() {
+        rowsParsed.incrementAndGet();
+    }
+
+    public void rowsValidated(long count) {
+        rowsValidated.addAndGet(count);
+    }
+
+    public void rowsInserted(long count) {
+        rowsInserted.addAndGet(count);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("stage", stage);
+        map.put("rowsParsed", rowsParsed.get());
+        map.put("rowsValidated", rowsValidated.get());
+        map.put("rowsInserted", rowsInserted.get());
+        return map;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A resumable upload in progress, see {@link ResumableUploadService}. Content is appended to {@link #getPath()}
+ * in order; {@link #getReceived()} is the offset the next piece has to start at.
+ */
+public class UploadSession {
+
+    private final String id;
+    private final String tableName;
+    private final String filename;
+    private final String contentType;
+    private final Path path;
+    private final long maxBytes;
+    private final Long expectedBytes;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime lastActivity = createdAt;
+    private volatile long received;
+    private volatile boolean closed;
+
+    UploadSession(String id, String tableName, String filename, String contentType, Path path,
+                  long maxBytes, Long expectedBytes) {
+        this.id = id;
+        this.tableName = tableName;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.expectedBytes = expectedBytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    String getFilename() {
+        return filename;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    Long getExpectedBytes() {
+        return expectedBytes;
+    }
+
+    LocalDateTime getLastActivity() {
+        return lastActivity;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void setReceived(long received) {
+        this.received = received;
+        this.lastActivity = LocalDateTime.now();
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("uploadId", id);
+        map.put("tableName", tableName);
+        map.put("filename", filename);
+        map.put("received", received);
+        map.put("expectedBytes", expectedBytes);
+        map.put("maxBytes", maxBytes);
+        map.put("createdAt", createdAt);
+        map.put("lastActivity", lastActivity);
+        return map;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * How an upload reports cell validation errors, see {@link ValidationReportStore}.
+ */
+public enum ValidationErrorMode {
+    /** Stop reading the file as soon as {@code upload.validation.max-errors} errors were found. */
+    FAIL_FAST,
+    /** Read the whole file, but only count errors per column and quote the first few individually. */
+    CAPPED
+}
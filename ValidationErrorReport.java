@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ValidationError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The validation errors of one upload. Only the first {@code upload.validation.max-listed-errors} errors and a
+ * count per column are kept in memory; every error is appended to a CSV file that is published through
+ * {@link ValidationReportStore} when the upload is rejected, so the response stays small however bad the file is.
+ * <p>
+ * Errors are added from the pipeline merger on the reader thread; {@link #isLimitReached()} may be polled
+ * from validation workers.
+ */
+final class ValidationErrorReport implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationErrorReport.class);
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final ValidationReportStore store;
+    private final String tableName;
+    private final ValidationErrorMode mode;
+    private final int maxErrors;
+    private final int maxListedErrors;
+    private final List<ValidationError> listed = new ArrayList<>();
+    private final Map<String, ColumnErrors> columns = new LinkedHashMap<>();
+    private long count;
+    private int lastRow;
+    private volatile boolean limitReached;
+    private Path path;
+    private BufferedWriter writer;
+    private boolean writeFailed;
+    private boolean published;
+
+    ValidationErrorReport(ValidationReportStore store, String tableName, ValidationErrorMode mode,
+                          int maxErrors, int maxListedErrors) {
+        this.store = store;
+        this.tableName = tableName;
+        this.mode = mode;
+        this.maxErrors = maxErrors;
+        this.maxListedErrors = maxListedErrors;
+    }
+
+    void add(ValidationError error) {
+        if (limitReached) return;
+        count++;
+        lastRow = error.getRow();
+        if (listed.size() < maxListedErrors) listed.add(error);
+        columns.computeIfAbsent(error.getColumnName(), name -> new ColumnErrors(error.getRow())).count++;
+        write(error);
+        if (mode == ValidationErrorMode.FAIL_FAST && count >= maxErrors) limitReached = true;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * True once fail-fast mode has seen enough errors; the rest of the file is not worth reading.
+     */
+    boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * Publishes the full report and describes the errors as the message of a 400.
+     */
+    ResponseStatusException toException() {
+        StringBuilder message = new StringBuilder();
+        if (limitReached) {
+            message.append(String.format("Stopped after %d validation errors at row %d. ", count, lastRow));
+        } else if (count > listed.size()) {
+            message.append(count).append(" validation errors. ");
+        }
+        if (count > listed.size()) {
+            message.append("Errors per column: ").append(columns.entrySet().stream()
+                    .map(e -> String.format("%s=%d (first at row %d)", e.getKey(), e.getValue().count, e.getValue().firstRow))
+                    .collect(Collectors.joining(", "))).append(". First ").append(listed.size()).append(": ");
+        }
+        message.append(listed.stream()
+                .map(e -> String.format("Row %d, Col %d (%s): %s [Value='%s']",
+                        e.getRow(), e.getColumn(), e.getColumnName(), e.getErrorMessage(), e.getValue()))
+                .collect(Collectors.joining("; ")));
+
+        String reportId = publish();
+        if (reportId != null) {
+            message.append(". Full report: /tables/").append(tableName).append("/validation-reports/").append(reportId);
+        }
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, message.toString());
+    }
+
+    @Override
+    public void close() {
+        closeWriter();
+        if (!published && path != null) store.deleteQuietly(path);
+    }
+
+    private String publish() {
+        closeWriter();
+        if (path == null || writeFailed) return null;
+        published = true;
+        return store.publish(tableName, path, count);
+    }
+
+    private void write(ValidationError error) {
+        if (writeFailed) return;
+        try {
+            if (writer == null) {
+                path = store.createReportFile();
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writer.write("row,column,column_name,value,error\r\n");
+            }
+            writer.write(error.getRow() + "," + error.getColumn() + "," + csv(error.getColumnName()) + ","
+                    + csv(error.getValue()) + "," + csv(error.getErrorMessage()) + "\r\n");
+        } catch (IOException e) {
+            log.warn("Could not write validation report for {}: {}", tableName, e.getMessage());
+            writeFailed = true;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Could not write validation report for {}: {}", tableName, e.getMessage());
+            writeFailed = true;
+        }
+        writer = null;
+    }
+
+    /**
+     * Quotes the value where CSV needs it, and prefixes text starting with a formula character with an apostrophe
+     * so that spreadsheet applications show the uploaded value rather than evaluate it.
+     */
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) value = "'" + value;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static final class ColumnErrors {
+        private final int firstRow;
+        private long count;
+
+        private ColumnErrors(int firstRow) {
+            this.firstRow = firstRow;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ValidationError;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationErrorReportTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void cappedModeCountsEveryErrorButListsOnlyTheFirst() throws IOException {
+        ValidationReportStore store = store(ValidationErrorMode.CAPPED, 2);
+        try (ValidationErrorReport report = store.start("rates")) {
+            for (int row = 2; row <= 6; row++) report.add(error(row, "code"));
+            report.add(error(7, "rate"));
+
+            assertFalse(report.isLimitReached());
+            assertEquals(6, report.getCount());
+            String message = report.toException().getReason();
+
+            assertTrue(message.startsWith("6 validation errors. "), message);
+            assertTrue(message.contains("code=5 (first at row 2), rate=1 (first at row 7)"), message);
+            assertTrue(message.contains("First 2: Row 2, Col 1 (code)"), message);
+            assertFalse(message.contains("Row 4,"), message);
+
+            String reportId = message.substring(message.lastIndexOf('/') + 1);
+            List<String> lines = Files.readAllLines(store.find("rates", reportId).path(), StandardCharsets.UTF_8);
+            assertEquals(7, lines.size());
+            assertEquals("row,column,column_name,value,error", lines.get(0));
+        }
+    }
+
+    @Test
+    void failFastStopsAtTheLimit() {
+        ValidationReportStore store = store(ValidationErrorMode.FAIL_FAST, 2);
+        try (ValidationErrorReport report = store.start("rates")) {
+            report.add(error(2, "code"));
+            assertFalse(report.isLimitReached());
+            report.add(error(3, "code"));
+            assertTrue(report.isLimitReached());
+            report.add(error(4, "code"));
+
+            assertEquals(2, report.getCount());
+            ResponseStatusException exception = report.toException();
+            assertTrue(exception.getReason().startsWith("Stopped after 2 validation errors at row 3. "), exception.getReason());
+        }
+    }
+
+    @Test
+    void quotesCsvValuesThatNeedIt() throws IOException {
+        ValidationReportStore store = store(ValidationErrorMode.CAPPED, 20);
+        try (ValidationErrorReport report = store.start("rates")) {
+            report.add(new ValidationError(2, 1, "code", "a,\"b\"", "Value does not match regex pattern"));
+            String message = report.toException().getReason();
+
+            String reportId = message.substring(message.lastIndexOf('/') + 1);
+            List<String> lines = Files.readAllLines(store.find("rates", reportId).path(), StandardCharsets.UTF_8);
+            assertEquals("2,1,code,\"a,\"\"b\"\"\",Value does not match regex pattern", lines.get(1));
+        }
+    }
+
+    @Test
+    void prefixesValuesSpreadsheetsWouldEvaluate() throws IOException {
+        ValidationReportStore store = store(ValidationErrorMode.CAPPED, 20);
+        try (ValidationErrorReport report = store.start("rates")) {
+            report.add(new ValidationError(2, 1, "code", "=HYPERLINK(\"x\")", "Value does not match regex pattern"));
+            report.add(new ValidationError(3, 1, "code", "@SUM(A1)", "Value does not match regex pattern"));
+            String message = report.toException().getReason();
+
+            String reportId = message.substring(message.lastIndexOf('/') + 1);
+            List<String> lines = Files.readAllLines(store.find("rates", reportId).path(), StandardCharsets.UTF_8);
+            assertEquals("2,1,code,\"'=HYPERLINK(\"\"x\"\")\",Value does not match regex pattern", lines.get(1));
+            assertEquals("3,1,code,'@SUM(A1),Value does not match regex pattern", lines.get(2));
+        }
+    }
+
+    @Test
+    void expiredReportsAreEvictedOnLookup() throws Exception {
+        ValidationReportStore store = new ValidationReportStore(new DelimitedTextReader(), directory.toString(),
+                ValidationErrorMode.CAPPED, 20, 20, Duration.ofMillis(1));
+        String reportId;
+        try (ValidationErrorReport report = store.start("rates")) {
+            report.add(error(2, "code"));
+            String message = report.toException().getReason();
+            reportId = message.substring(message.lastIndexOf('/') + 1);
+        }
+        Thread.sleep(10);
+
+        assertThrows(ResponseStatusException.class, () -> store.find("rates", reportId));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        store.shutdown();
+    }
+
+    @Test
+    void unpublishedReportIsDeletedOnClose() throws IOException {
+        ValidationReportStore store = store(ValidationErrorMode.CAPPED, 20);
+        try (ValidationErrorReport report = store.start("rates")) {
+            report.add(error(2, "code"));
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private ValidationReportStore store(ValidationErrorMode mode, int limit) {
+        return new ValidationReportStore(new DelimitedTextReader(), directory.toString(), mode, limit, limit, Duration.ofHours(1));
+    }
+
+    private static ValidationError error(int row, String column) {
+        return new ValidationError(row, 1, column, "x" + row, "Value does not match regex pattern");
+    }
+}
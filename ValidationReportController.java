@@ -0,0 +1,61 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ExcelUploadService;
+import com.example.demo.service.ValidationReportStore;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Downloads the full error report of a rejected upload; the link is part of the upload's error message.
+ */
+@RestController
+@RequestMapping("/tables")
+public class ValidationReportController {
+
+    private static final MediaType XLSX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private final ExcelUploadService excelUploadService;
+    private final ValidationReportStore validationReportStore;
+
+    public ValidationReportController(ExcelUploadService excelUploadService, ValidationReportStore validationReportStore) {
+        this.excelUploadService = excelUploadService;
+        this.validationReportStore = validationReportStore;
+    }
+
+    @GetMapping("/{table_id}/validation-reports/{report_id}")
+    public ResponseEntity<?> downloadReport(
+            @PathVariable("table_id") String tableId,
+            @PathVariable("report_id") String reportId,
+            @RequestParam("groups") List<String> groups,
+            @RequestParam(value = "format", defaultValue = "csv") String format) {
+
+        ValidationReportStore.StoredReport report;
+        try {
+            excelUploadService.checkUploadPermission(tableId, groups);
+            report = validationReportStore.find(tableId, reportId);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+        }
+
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        if (!xlsx && !"csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + format));
+        }
+        StreamingResponseBody body = xlsx
+                ? out -> validationReportStore.writeXlsx(report, out)
+                : out -> validationReportStore.writeCsv(report, out);
+        return ResponseEntity.ok()
+                .contentType(xlsx ? XLSX : MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + tableId + "-validation-errors."
+                        + (xlsx ? "xlsx" : "csv") + "\"")
+                .body(body);
+    }
+}
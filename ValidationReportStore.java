@@ -0,0 +1,153 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation settings for uploads and the full error reports of rejected ones. Reports are CSV files in the
+ * spool directory, kept for {@code upload.validation.report-ttl} and downloadable as CSV or XLSX. Expired reports are
+ * swept on a background thread, and whenever a report is published or looked up.
+ */
+@Service
+public class ValidationReportStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationReportStore.class);
+
+    private final DelimitedTextReader delimitedTextReader;
+    private final Path directory;
+    private final ValidationErrorMode mode;
+    private final int maxErrors;
+    private final int maxListedErrors;
+    private final Duration reportTtl;
+    private final Map<String, StoredReport> reports = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public ValidationReportStore(DelimitedTextReader delimitedTextReader,
+                                 @Value("${upload.spool.dir:${java.io.tmpdir}}") String directory,
+                                 @Value("${upload.validation.error-mode:CAPPED}") ValidationErrorMode mode,
+                                 @Value("${upload.validation.max-errors:1000}") int maxErrors,
+                                 @Value("${upload.validation.max-listed-errors:20}") int maxListedErrors,
+                                 @Value("${upload.validation.report-ttl:1h}") Duration reportTtl) {
+        this.delimitedTextReader = delimitedTextReader;
+        this.directory = Path.of(directory);
+        this.mode = mode;
+        this.maxErrors = Math.max(1, maxErrors);
+        this.maxListedErrors = Math.max(0, maxListedErrors);
+        this.reportTtl = reportTtl;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "validation-report-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(reportTtl.toMillis() / 4, 1000);
+        sweeper.scheduleWithFixedDelay(this::evictExpiredReports, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        reports.values().forEach(report -> deleteQuietly(report.path()));
+        reports.clear();
+    }
+
+    ValidationErrorReport start(String tableName) {
+        return new ValidationErrorReport(this, tableName, mode, maxErrors, maxListedErrors);
+    }
+
+    public StoredReport find(String tableName, String reportId) {
+        evictExpiredReports();
+        StoredReport report = reports.get(reportId);
+        if (report == null || !report.tableName().equals(tableName)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Validation report not found: " + reportId);
+        }
+        return report;
+    }
+
+    public void writeCsv(StoredReport report, OutputStream out) throws IOException {
+        Files.copy(report.path(), out);
+    }
+
+    /**
+     * Converts the CSV report row by row through a streaming workbook, so only a window of rows is in memory.
+     */
+    public void writeXlsx(StoredReport report, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = workbook.createSheet("Validation errors");
+            int[] next = {0};
+            delimitedTextReader.read(report.path(), ',', (rowIndex, cells) -> {
+                Row row = sheet.createRow(next[0]);
+                for (int c = 0; c < cells.size(); c++) {
+                    String value = cells.get(c);
+                    // row and column numbers stay numeric so the sheet sorts and filters properly
+                    if (next[0] > 0 && c < 2 && !value.isEmpty()) {
+                        row.createCell(c).setCellValue(Integer.parseInt(value));
+                    } else {
+                        row.createCell(c).setCellValue(value);
+                    }
+                }
+                next[0]++;
+            });
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    Path createReportFile() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, "validation-report-", ".csv");
+    }
+
+    String publish(String tableName, Path path, long errors) {
+        evictExpiredReports();
+        StoredReport report = new StoredReport(UUID.randomUUID().toString(), tableName, path, errors, LocalDateTime.now());
+        reports.put(report.id(), report);
+        return report.id();
+    }
+
+    void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete validation report {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Safe to run concurrently: a report is only deleted by the caller that removed it from the map.
+     */
+    private void evictExpiredReports() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(reportTtl);
+        List<StoredReport> expired = reports.values().stream().filter(r -> r.createdAt().isBefore(cutoff)).toList();
+        for (StoredReport report : expired) {
+            if (reports.remove(report.id(), report)) deleteQuietly(report.path());
+        }
+    }
+
+    public record StoredReport(String id, String tableName, Path path, long errors, LocalDateTime createdAt) {
+    }
+}
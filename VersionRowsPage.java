@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class VersionRowsPage {
+    private String tableName;
+    private String version;
+    private int offset;
+    private int limit;
+    private boolean hasMore;
+    private List<Map<String, Object>> rows;
+
+    public VersionRowsPage(String tableName, String version, int offset, int limit, boolean hasMore,
+                           List<Map<String, Object>> rows) {
+        this.tableName = tableName;
+        this.version = version;
+        this.offset = offset;
+        this.limit = limit;
+        this.hasMore = hasMore;
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkUploadFormColumn;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds synthetic bulk upload forms and matching workbooks/CSV files for {@link UploadPipelineBenchmark}.
+ * Column 0 is the key ({@code code}); the remaining columns cycle through int, double, string and boolean casts.
+ * Everything is derived from {@link Spec#seed()}, so the same spec always produces the same file.
+ */
+public final class SyntheticUploadGenerator {
+
+    public enum RegexComplexity {
+        /** No regex_pattern at all. */
+        NONE,
+        /** Character-set-only patterns such as {@code ^[A-Za-z0-9 ]+$}. */
+        CHARSET,
+        /** Fixed-length class sequences such as {@code ^[A-Z]{3}[0-9]{5}$}. */
+        FIXED_CLASSES,
+        /** Alternations and optional groups; only some of them reduce to a fast-path matcher. */
+        ALTERNATION
+    }
+
+    /**
+     * @param errorRate        share of cells (other than the key) replaced by a value that fails its pattern; in
+     *                         int and double columns the value cannot be cast either, which the upload reports as
+     *                         a validation error like a pattern mismatch
+     * @param duplicateKeyRate share of rows that repeat an earlier row's key
+     */
+    public record Spec(int rows, int columns, RegexComplexity regex, double errorRate, double duplicateKeyRate, long seed) {
+    }
+
+    public static final String TABLE_NAME = "bench_lookup";
+
+    private static final String INVALID_NUMBER = "n/a";
+    private static final String INVALID_BOOLEAN = "maybe";
+
+    private static final String[] WORDS = {
+            "Alpha", "Bravo", "Charlie", "Delta", "Echo", "Foxtrot", "Golf", "Hotel", "India", "Juliett",
+            "Kilo", "Lima", "Mike", "November", "Oscar", "Papa", "Quebec", "Romeo", "Sierra", "Tango"
+    };
+
+    private SyntheticUploadGenerator() {
+    }
+
+    public static List<BulkUploadFormColumn> form(Spec spec) {
+        List<BulkUploadFormColumn> form = new ArrayList<>();
+        form.add(column("Code", "code", switch (spec.regex()) {
+            case NONE -> null;
+            case CHARSET -> "^[A-Z0-9]+$";
+            case FIXED_CLASSES -> "^[A-Z]{3}[0-9]{5}$";
+            case ALTERNATION -> "^([A-Z]{3}|X-[A-Z]{2})[0-9]{5}$";
+        }, null));
+        for (int c = 1; c < spec.columns(); c++) {
+            String castTo = castOf(c);
+            form.add(column("Column " + c, "c" + c, pattern(castTo, spec.regex()), castTo));
+        }
+        return form;
+    }
+
+    /**
+     * Plan over {@link #form}, loading into {@link #TABLE_NAME} with the audit columns appended.
+     */
+    public static UploadPlan plan(List<BulkUploadFormColumn> form) {
+        List<String> insertColumns = new ArrayList<>(form.stream().map(BulkUploadFormColumn::getColumnName).toList());
+        insertColumns.add("created_by");
+        insertColumns.add("created_date");
+        String insertSql = String.format("INSERT INTO %s (%s) VALUES (%s)", TABLE_NAME, String.join(", ", insertColumns),
+                String.join(", ", insertColumns.stream().map(c -> "?").toList()));
+        return new UploadPlan(TABLE_NAME, form, List.of("code"), List.of("bench"), insertColumns, insertSql,
+                Duration.ofMillis(100), new UploadPlan.MetadataSnapshot(null, null, null));
+    }
+
+    /**
+     * DDL for {@link #TABLE_NAME} matching {@link #form}.
+     */
+    public static String createTableSql(List<BulkUploadFormColumn> form) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(TABLE_NAME).append(" (");
+        for (BulkUploadFormColumn column : form) {
+            String type = column.getCastTo() == null ? "VARCHAR(64)" : switch (column.getCastTo()) {
+                case "int" -> "INTEGER";
+                case "double" -> "DOUBLE PRECISION";
+                case "boolean" -> "BOOLEAN";
+                default -> "VARCHAR(64)";
+            };
+            sql.append(column.getColumnName()).append(' ').append(type).append(", ");
+        }
+        return sql.append("created_by VARCHAR(64) NOT NULL, created_date TIMESTAMP NOT NULL)").toString();
+    }
+
+    /**
+     * The sheet as cell strings, header row first.
+     */
+    public static List<List<String>> cells(Spec spec, List<BulkUploadFormColumn> form) {
+        List<List<String>> rows = new ArrayList<>(spec.rows() + 1);
+        rows.add(form.stream().map(BulkUploadFormColumn::getExcelColumnName).toList());
+        Random random = new Random(spec.seed());
+        for (int r = 0; r < spec.rows(); r++) {
+            List<String> row = new ArrayList<>(form.size());
+            for (int c = 0; c < form.size(); c++) {
+                row.add(value(spec, form.get(c), r, c, random));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public static void writeCsv(Spec spec, List<BulkUploadFormColumn> form, Path target) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            for (List<String> row : cells(spec, form)) {
+                writer.write(String.join(",", row));
+                writer.write("\r\n");
+            }
+        }
+    }
+
+    /**
+     * Writes the sheet through SXSSF, with numeric and boolean columns as typed cells as Excel would store them;
+     * invalid values in those columns are written as text cells.
+     */
+    public static void writeXlsx(Spec spec, List<BulkUploadFormColumn> form, Path target) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            Sheet sheet = workbook.createSheet("Data");
+            List<List<String>> rows = cells(spec, form);
+            for (int r = 0; r < rows.size(); r++) {
+                Row row = sheet.createRow(r);
+                List<String> values = rows.get(r);
+                for (int c = 0; c < values.size(); c++) {
+                    String value = values.get(c);
+                    String castTo = r == 0 ? null : form.get(c).getCastTo();
+                    if (("int".equals(castTo) || "double".equals(castTo)) && !INVALID_NUMBER.equals(value)) {
+                        row.createCell(c).setCellValue(Double.parseDouble(value));
+                    } else if ("boolean".equals(castTo) && !INVALID_BOOLEAN.equals(value)) {
+                        row.createCell(c).setCellValue(Boolean.parseBoolean(value));
+                    } else {
+                        row.createCell(c).setCellValue(value);
+                    }
+                }
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static String value(Spec spec, BulkUploadFormColumn column, int row, int c, Random random) {
+        if (c == 0) {
+            int keyRow = row > 0 && random.nextDouble() < spec.duplicateKeyRate() ? random.nextInt(row) : row;
+            return (char) ('A' + keyRow % 26) + "" + (char) ('A' + keyRow / 26 % 26) + (char) ('A' + keyRow / 676 % 26)
+                    + String.format("%05d", keyRow % 100_000);
+        }
+        String castTo = column.getCastTo();
+        if (random.nextDouble() < spec.errorRate()) {
+            return castTo == null ? "#invalid#" : "boolean".equals(castTo) ? INVALID_BOOLEAN : INVALID_NUMBER;
+        }
+        return switch (castTo == null ? "string" : castTo) {
+            case "int" -> Integer.toString(random.nextInt(1_000_000));
+            case "double" -> Double.toString(Math.round(random.nextDouble() * 1_000_000) / 100.0);
+            case "boolean" -> Boolean.toString(random.nextBoolean());
+            default -> WORDS[random.nextInt(WORDS.length)];
+        };
+    }
+
+    private static String castOf(int column) {
+        return switch (column % 4) {
+            case 1 -> "int";
+            case 2 -> "double";
+            case 3 -> null;
+            default -> "boolean";
+        };
+    }
+
+    private static String pattern(String castTo, RegexComplexity regex) {
+        if (regex == RegexComplexity.NONE) return null;
+        return switch (castTo == null ? "string" : castTo) {
+            case "int" -> regex == RegexComplexity.ALTERNATION ? "^(0|[1-9][0-9]*)$" : "^[0-9]{1,9}$";
+            case "double" -> regex == RegexComplexity.ALTERNATION ? "^-?(0|[1-9][0-9]*)(\\.[0-9]+)?$" : "^[0-9.]+$";
+            case "boolean" -> "^(true|false)$";
+            default -> switch (regex) {
+                case CHARSET -> "^[A-Za-z0-9 ]+$";
+                case FIXED_CLASSES -> "^[A-Z][a-z]{3,7}$";
+                default -> "^(" + String.join("|", WORDS) + ")$";
+            };
+        };
+    }
+
+    private static BulkUploadFormColumn column(String excelColumnName, String columnName, String regexPattern, String castTo) {
+        BulkUploadFormColumn column = new BulkUploadFormColumn();
+        column.setExcelColumnName(excelColumnName);
+        column.setColumnName(columnName);
+        column.setRegexPattern(regexPattern);
+        column.setCastTo(castTo);
+        return column;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkUploadFormColumn;
+import com.example.demo.repository.RuleappHistoricalDataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for each stage of an upload, over files from {@link SyntheticUploadGenerator}:
+ * workbook parsing (SAX and DOM), CSV parsing, per-cell validation, duplicate-key detection, history
+ * serialization and the table reload against an in-memory H2 database.
+ * <p>
+ * Benchmarks live in their own source set, the {@code jmh} directory, so neither they nor JMH, H2 and the simple
+ * meter registry end up on the application classpath or in the service jar. They are in the service package to
+ * reach its package-private parts, and are compiled against the application classes. Besides the application's
+ * own dependencies this source set needs, on the classpath it is compiled and run with,
+ * {@code org.openjdk.jmh:jmh-core}, {@code org.openjdk.jmh:jmh-generator-annprocess} as an annotation processor
+ * (it generates the benchmark list JMH reads at run time) and {@code com.h2database:h2}. With those in place run
+ * {@link #main} from the IDE, or {@code java -cp <classpath> com.example.demo.service.UploadPipelineBenchmark
+ * [benchmark] [-p rows=100000 ...]}; the first argument, if it is not an option, narrows the run to benchmarks
+ * matching it and the rest are passed to JMH as on its command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UploadPipelineBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int columns;
+
+    @Param({"CHARSET", "ALTERNATION"})
+    public SyntheticUploadGenerator.RegexComplexity regex;
+
+    @Param({"0.0", "0.01"})
+    public double errorRate;
+
+    private Path xlsx;
+    private Path csv;
+    private List<List<String>> cells;
+    private UploadPlan plan;
+    private ColumnarRowBatch batch;
+    private HistoricalSnapshotStore historicalSnapshotStore;
+    private DynamicTableService dynamicTableService;
+    private int validationErrors;
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        String include = UploadPipelineBenchmark.class.getSimpleName();
+        String[] jmhArgs = args;
+        if (args.length > 0 && !args[0].startsWith("-")) {
+            include += "." + args[0];
+            jmhArgs = Arrays.copyOfRange(args, 1, args.length);
+        }
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs))
+                .include(include)
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticUploadGenerator.Spec spec = new SyntheticUploadGenerator.Spec(rows, columns, regex, errorRate, 0.0, 42L);
+        List<BulkUploadFormColumn> form = SyntheticUploadGenerator.form(spec);
+        plan = SyntheticUploadGenerator.plan(form);
+        cells = SyntheticUploadGenerator.cells(spec, form);
+        xlsx = Files.createTempFile("bench-", ".xlsx");
+        csv = Files.createTempFile("bench-", ".csv");
+        SyntheticUploadGenerator.writeXlsx(spec, form, xlsx);
+        SyntheticUploadGenerator.writeCsv(spec, form, csv);
+        batch = validate();
+        batch.setConstant("created_by", "bench");
+        batch.setConstant("created_date", LocalDateTime.now());
+
+        historicalSnapshotStore = new HistoricalSnapshotStore(discardingHistoryRepository(), noOpEntityManager(), 1 << 20, 10);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SyntheticUploadGenerator.TABLE_NAME);
+        jdbcTemplate.execute(SyntheticUploadGenerator.createTableSql(form));
+        dynamicTableService = new DynamicTableService(jdbcTemplate, 5000, 500, 30000, true, 4,
+                new UploadMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dynamicTableService.shutdown();
+        Files.deleteIfExists(xlsx);
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public void parseXlsxStreaming(Blackhole blackhole) throws IOException {
+        new ExcelSheetReader(0).read(new SpooledMultipartFile(xlsx, "bench.xlsx", null),
+                (rowIndex, row) -> blackhole.consume(row));
+    }
+
+    @Benchmark
+    public void parseXlsxWorkbook(Blackhole blackhole) throws IOException {
+        new ExcelSheetReader(Long.MAX_VALUE).read(new SpooledMultipartFile(xlsx, "bench.xlsx", null),
+                (rowIndex, row) -> blackhole.consume(row));
+    }
+
+    @Benchmark
+    public void parseCsv(Blackhole blackhole) throws IOException {
+        new DelimitedTextReader().read(csv, ',', (rowIndex, row) -> blackhole.consume(row));
+    }
+
+    /**
+     * Regex matching and casting into a columnar batch, as {@code ExcelUploadService.processRow} does per row:
+     * a value that fails its cast is stored as null and counted as a validation error.
+     */
+    @Benchmark
+    public ColumnarRowBatch validateRows() {
+        return validate();
+    }
+
+    @Benchmark
+    public int detectDuplicateKeys() {
+        DuplicateKeyIndex index = new DuplicateKeyIndex(batch, plan.getKeyColumnIndexes());
+        int duplicates = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            if (index.add(row, row + 2) >= 0) duplicates++;
+        }
+        return duplicates;
+    }
+
+    /**
+     * JSON + gzip + base64 chunking of a full snapshot; the repository discards the chunk rows.
+     */
+    @Benchmark
+    public void storeHistory() throws IOException {
+        historicalSnapshotStore.write(SyntheticUploadGenerator.TABLE_NAME, "1.0", null, plan.getKeyColumns(), batch, "bench");
+    }
+
+    @Benchmark
+    public int reloadTable() {
+        return dynamicTableService.reloadTable(plan, batch, "bench", ReloadMode.TRUNCATE, new UploadProgress());
+    }
+
+    private ColumnarRowBatch validate() {
+        List<UploadPlan.PlanColumn> planColumns = plan.getColumns();
+        ColumnarRowBatch validated = plan.newBatch();
+        for (int r = 1; r < cells.size(); r++) {
+            List<String> row = cells.get(r);
+            for (int c = 0; c < planColumns.size(); c++) {
+                UploadPlan.PlanColumn column = planColumns.get(c);
+                String value = row.get(c);
+                if (!column.matches(value)) validationErrors++;
+                try {
+                    column.appendTo(validated, c, value);
+                } catch (ResponseStatusException e) {
+                    validated.appendNull(c);
+                    validationErrors++;
+                }
+            }
+            validated.endRow();
+        }
+        return validated;
+    }
+
+    private static RuleappHistoricalDataRepository discardingHistoryRepository() {
+        return (RuleappHistoricalDataRepository) Proxy.newProxyInstance(
+                RuleappHistoricalDataRepository.class.getClassLoader(),
+                new Class<?>[]{RuleappHistoricalDataRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findFirstByTableIdAndVersion" -> Optional.empty();
+                    case "save", "saveAndFlush" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "DiscardingHistoryRepository";
+                    default -> null;
+                });
+    }
+
+    private static EntityManager noOpEntityManager() {
+        return (EntityManager) Proxy.newProxyInstance(
+                EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "NoOpEntityManager";
+                    default -> null;
+                });
+    }
+}